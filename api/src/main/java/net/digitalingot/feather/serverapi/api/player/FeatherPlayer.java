@@ -81,4 +81,38 @@ public interface FeatherPlayer {
    * @since 0.0.5
    */
   void bypassMissPenalty(boolean bypass);
+
+  /**
+   * Returns how many messages are queued for the player that were not completely sent yet.
+   *
+   * @return the number of queued messages
+   * @since 0.0.5
+   */
+  int getQueuedMessages();
+
+  /**
+   * Returns how many bytes are queued for the player that were not sent yet.
+   *
+   * @return the number of queued bytes
+   * @since 0.0.5
+   */
+  long getQueuedBytes();
+
+  /**
+   * Returns how many messages to the player were dropped because too much was queued for it.
+   *
+   * @return the number of dropped messages
+   * @since 0.0.5
+   */
+  long getDroppedMessages();
+
+  /**
+   * Returns whether the player's connection does not keep up with what it is sent. Plugins
+   * sending large or frequent updates should send less to a congested player, since messages may
+   * be dropped once its queue is full.
+   *
+   * @return true if the player is congested
+   * @since 0.0.5
+   */
+  boolean isCongested();
 }
@@ -17,7 +17,8 @@ public interface PlayerService {
   FeatherPlayer getPlayer(@NotNull UUID playerId);
 
   /**
-   * Returns a collection of all online Feather players.
+   * Returns a collection of all online Feather players. The collection is an immutable snapshot,
+   * so it can be iterated from any thread while players join and leave.
    *
    * @return A collection of all online FeatherPlayer's.
    */
@@ -18,4 +18,22 @@ public @interface RpcHandler {
    * @return the RPC request name
    */
   String value();
+
+  /**
+   * The requests per second a single player may send to the annotated method over time. Requests
+   * beyond the limit are answered with a failed response without invoking the method.
+   *
+   * @return the request rate, {@code 0} for no limit, or {@code -1} for the server's default
+   * @since 0.0.5
+   */
+  int rate() default -1;
+
+  /**
+   * The requests a single player may send to the annotated method at once, after not sending any
+   * for a while.
+   *
+   * @return the burst size, or {@code -1} for twice the {@link #rate()}
+   * @since 0.0.5
+   */
+  int burst() default -1;
 }
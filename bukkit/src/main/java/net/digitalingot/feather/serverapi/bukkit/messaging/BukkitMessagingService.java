@@ -1,10 +1,15 @@
 package net.digitalingot.feather.serverapi.bukkit.messaging;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 import net.digitalingot.feather.serverapi.api.model.FeatherMod;
 import net.digitalingot.feather.serverapi.api.model.Platform;
@@ -15,11 +20,22 @@ import net.digitalingot.feather.serverapi.bukkit.player.BukkitFeatherPlayer;
 import net.digitalingot.feather.serverapi.bukkit.player.BukkitPlayerService;
 import net.digitalingot.feather.serverapi.bukkit.ui.rpc.RpcService;
 import net.digitalingot.feather.serverapi.bukkit.update.UpdateNotifier;
+import net.digitalingot.feather.serverapi.messaging.FramedMessage;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageBatcher;
+import net.digitalingot.feather.serverapi.messaging.MessageCapabilities;
+import net.digitalingot.feather.serverapi.messaging.MessageCompressor;
 import net.digitalingot.feather.serverapi.messaging.MessageConstants;
 import net.digitalingot.feather.serverapi.messaging.MessageDecoder;
 import net.digitalingot.feather.serverapi.messaging.MessageEncoder;
+import net.digitalingot.feather.serverapi.messaging.MessageFragmentationConstants;
 import net.digitalingot.feather.serverapi.messaging.MessageFragmenter;
+import net.digitalingot.feather.serverapi.messaging.MessageLanes;
+import net.digitalingot.feather.serverapi.messaging.MessagePriority;
+import net.digitalingot.feather.serverapi.messaging.MessageReassembler;
+import net.digitalingot.feather.serverapi.messaging.Messages;
+import net.digitalingot.feather.serverapi.messaging.MessagingOptions;
+import net.digitalingot.feather.serverapi.messaging.PreparedMessage;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CHandshake;
 import net.digitalingot.feather.serverapi.messaging.messages.server.C2SClientHello;
@@ -33,16 +49,31 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.messaging.Messenger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class BukkitMessagingService implements Listener {
   private static final String CHANNEL = "feather:client";
   private static final String CHANNEL_FRAGMENTED = "feather:client/frag";
+  private static final long SWEEP_PERIOD_TICKS = 20L * 5;
+  private static final long FLUSH_PERIOD_TICKS = 1L;
+  private static final long MILLIS_PER_TICK = 50L;
+  private static final int LEGACY_FRAME_SIZE = Messenger.MAX_MESSAGE_SIZE;
+  // Read at runtime: servers newer than the API compiled against accept larger messages.
+  private static final int MAX_FRAME_SIZE = readMaxMessageSize();
 
   @NotNull private final FeatherBukkitPlugin plugin;
 
   @NotNull private final BukkitPlayerService playerService;
   @NotNull private final RpcService rpcService;
   @NotNull private final Handshaking handshaking;
+  @NotNull private final MessageReassembler<UUID> reassembler = new MessageReassembler<>();
+  @NotNull private final MessageLanes<Player> lanes =
+      new MessageLanes<>(MessageLanes.getBytesPerFlush(FLUSH_PERIOD_TICKS * MILLIS_PER_TICK));
+  @NotNull private final MessageBatcher<Player> batcher =
+      new MessageBatcher<>(
+          LEGACY_FRAME_SIZE, MessageCompressor.SHARED, this.lanes, this::onEncodingFailure);
+  // Only accessed on the main thread.
+  @Nullable private EncodingJob encoding;
 
   public BukkitMessagingService(
       @NotNull FeatherBukkitPlugin plugin,
@@ -55,23 +86,37 @@ public class BukkitMessagingService implements Listener {
     this.handshaking = new Handshaking(this, updateNotifier);
 
     Bukkit.getPluginManager().registerEvents(this.handshaking, plugin);
+    Bukkit.getPluginManager().registerEvents(this, plugin);
+    Bukkit.getScheduler()
+        .runTaskTimer(plugin, this.reassembler::expire, SWEEP_PERIOD_TICKS, SWEEP_PERIOD_TICKS);
+    Bukkit.getScheduler()
+        .runTaskTimer(plugin, this.handshaking::expire, SWEEP_PERIOD_TICKS, SWEEP_PERIOD_TICKS);
+    Bukkit.getScheduler()
+        .runTaskTimer(plugin, this::flush, FLUSH_PERIOD_TICKS, FLUSH_PERIOD_TICKS);
 
     Messenger messenger = Bukkit.getMessenger();
     messenger.registerOutgoingPluginChannel(plugin, CHANNEL);
     messenger.registerOutgoingPluginChannel(plugin, CHANNEL_FRAGMENTED);
     messenger.registerIncomingPluginChannel(plugin, CHANNEL, this::onPluginMessage);
+    messenger.registerIncomingPluginChannel(
+        plugin, CHANNEL_FRAGMENTED, this::onFragmentedPluginMessage);
   }
 
   private void onPluginMessage(String channel, Player player, byte[] message) {
     BukkitFeatherPlayer featherPlayer = this.playerService.getPlayer(player.getUniqueId());
 
     if (featherPlayer != null) {
+      if (!featherPlayer.tryReceiveMessage()) {
+        featherPlayer.recordThrottledMessage();
+        return;
+      }
+
       Message<ServerMessageHandler> decodedMessage;
 
       try {
-        decodedMessage = MessageDecoder.SERVER_BOUND.decode(message);
+        decodedMessage = featherPlayer.getDecoder().decode(message);
       } catch (Exception exception) {
-        exception.printStackTrace();
+        rejectMessage(featherPlayer, exception);
         return;
       }
 
@@ -85,12 +130,54 @@ public class BukkitMessagingService implements Listener {
     }
   }
 
+  private void onFragmentedPluginMessage(String channel, Player player, byte[] message) {
+    BukkitFeatherPlayer featherPlayer = this.playerService.getPlayer(player.getUniqueId());
+
+    if (featherPlayer == null) {
+      return;
+    }
+
+    // Dropping a fragment fails its whole message, which only a flooding client gets to see.
+    if (!featherPlayer.tryReceiveMessage()) {
+      featherPlayer.recordThrottledMessage();
+      return;
+    }
+
+    Message<ServerMessageHandler> decodedMessage;
+
+    try {
+      decodedMessage =
+          this.reassembler.accept(player.getUniqueId(), message, featherPlayer.getDecoder());
+    } catch (Exception exception) {
+      rejectMessage(featherPlayer, exception);
+      return;
+    }
+
+    if (decodedMessage != null) {
+      handleMessage(featherPlayer, decodedMessage);
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onPlayerQuit(PlayerQuitEvent event) {
+    this.reassembler.remove(event.getPlayer().getUniqueId());
+    this.batcher.remove(event.getPlayer());
+    this.lanes.remove(event.getPlayer());
+  }
+
   public void callEvent(Event event) {
     this.plugin.getServer().getPluginManager().callEvent(event);
   }
 
   private void handleHello(Player player, C2SClientHello hello) {
-    BukkitFeatherPlayer featherPlayer = new BukkitFeatherPlayer(player, this, this.rpcService);
+    Handshaking.Connection connection = this.handshaking.take(player);
+    BukkitFeatherPlayer featherPlayer =
+        new BukkitFeatherPlayer(
+            player,
+            this,
+            this.rpcService,
+            connection.capabilities,
+            connection.frameSize);
     this.playerService.register(featherPlayer);
 
     Platform platform;
@@ -116,56 +203,281 @@ public class BukkitMessagingService implements Listener {
     this.callEvent(helloEvent);
   }
 
+  private void rejectMessage(BukkitFeatherPlayer player, Exception exception) {
+    // Malformed input is expected from misbehaving clients; log it once per player.
+    if (player.recordRejectedMessage() == 1) {
+      this.plugin
+          .getLogger()
+          .log(
+              Level.WARNING,
+              "Rejected a message from "
+                  + player.getName()
+                  + ", further rejections are only counted",
+              exception);
+    }
+  }
+
+  private void onEncodingFailure(Player player, Message<?> message, RuntimeException exception) {
+    this.plugin
+        .getLogger()
+        .log(
+            Level.WARNING,
+            "Failed to encode " + message.getClass().getSimpleName() + " for " + player.getName(),
+            exception);
+  }
+
   private void handleMessage(BukkitFeatherPlayer player, Message<ServerMessageHandler> message) {
     player.handleMessage(message);
   }
 
   public void sendMessage(BukkitFeatherPlayer player, Message<?> message) {
-    sendMessage(player.getPlayer(), message);
+    awaitCapacity(player);
+    if (message.getPriority() != MessagePriority.URGENT) {
+      enqueue(player, message);
+      return;
+    }
+
+    boolean compress = supports(player, MessageCapabilities.COMPRESSION);
+    send(player, frame(message, compress, getFrameSize(player)), message.getPriority());
   }
 
   public void sendMessage(Collection<FeatherPlayer> recipients, Message<?> message) {
-    if (recipients.isEmpty()) {
+    if (message.getPriority() != MessagePriority.URGENT) {
+      // Encoded once per variant by the next flush.
+      for (FeatherPlayer recipient : recipients) {
+        BukkitFeatherPlayer player = (BukkitFeatherPlayer) recipient;
+        awaitCapacity(player);
+        enqueue(player, message);
+      }
       return;
     }
 
-    byte[] encoded = MessageEncoder.CLIENT_BOUND.encode(message);
-
-    if (encoded.length > Messenger.MAX_MESSAGE_SIZE) {
-      List<byte[]> fragments = MessageFragmenter.CLIENT_BOUND.fragment(message);
+    // Frame at most once per variant, only for the variants some recipient actually needs.
+    Map<Integer, FramedMessage> variants = new HashMap<>();
+
+    for (FeatherPlayer recipient : recipients) {
+      BukkitFeatherPlayer player = (BukkitFeatherPlayer) recipient;
+      awaitCapacity(player);
+      boolean compress = supports(player, MessageCapabilities.COMPRESSION);
+      int frameSize = getFrameSize(player);
+      FramedMessage framed =
+          variants.computeIfAbsent(
+              frameSize << 1 | (compress ? 1 : 0), ignored -> frame(message, compress, frameSize));
+      send(player, framed, message.getPriority());
+    }
+  }
 
-      for (FeatherPlayer recipient : recipients) {
-        for (byte[] data : fragments) {
-          sendPluginMessage(
-              ((BukkitFeatherPlayer) recipient).getPlayer(), CHANNEL_FRAGMENTED, data);
-        }
-      }
+  public void sendMessage(BukkitFeatherPlayer player, PreparedMessage message) {
+    awaitCapacity(player);
+    boolean compress = supports(player, MessageCapabilities.COMPRESSION);
+    if (message.getMessage().getPriority() != MessagePriority.URGENT) {
+      recordDropped(
+          player,
+          this.batcher.enqueue(
+              player.getPlayer(),
+              message,
+              compress,
+              getFrameSize(player),
+              supports(player, MessageCapabilities.BATCHING)));
     } else {
-      for (FeatherPlayer recipient : recipients) {
-        sendPluginMessage(((BukkitFeatherPlayer) recipient).getPlayer(), CHANNEL, encoded);
-      }
+      send(player, message.getFrames(compress, getFrameSize(player)), MessagePriority.URGENT);
     }
   }
 
+  public int getQueuedMessages(BukkitFeatherPlayer player) {
+    return this.lanes.getQueuedMessages(player.getPlayer());
+  }
+
+  public long getQueuedBytes(BukkitFeatherPlayer player) {
+    return this.lanes.getQueuedBytes(player.getPlayer());
+  }
+
+  public boolean isCongested(BukkitFeatherPlayer player) {
+    return this.lanes.isCongested(player.getPlayer());
+  }
+
   public void sendMessage(Player player, Message<?> message) {
-    byte[] encoded = MessageEncoder.CLIENT_BOUND.encode(message);
+    sendMessage(
+        player, message, MessageEncoder.CLIENT_BOUND.getEncodedSize(message), LEGACY_FRAME_SIZE);
+  }
+
+  /**
+   * Frames {@code message} once for this transport so it can be sent to any number of players
+   * without being encoded again.
+   *
+   * @param message the client-bound message
+   * @return the prepared message
+   */
+  @NotNull
+  public static PreparedMessage prepare(@NotNull Message<?> message) {
+    return PreparedMessage.prepare(message, LEGACY_FRAME_SIZE, MessageCompressor.SHARED);
+  }
+
+  private void sendMessage(Player player, Message<?> message, int encodedSize, int frameSize) {
+    if (encodedSize > frameSize) {
+      MessageFragmenter.CLIENT_BOUND.stream(
+          message, frameSize, data -> sendPluginMessage(player, CHANNEL_FRAGMENTED, data));
+    } else {
+      sendPluginMessage(player, CHANNEL, MessageEncoder.CLIENT_BOUND.encode(message));
+    }
+  }
+
+  private static FramedMessage frame(Message<?> message, boolean compress, int frameSize) {
+    return MessageFragmenter.CLIENT_BOUND.frame(
+        message, frameSize, compress ? MessageCompressor.SHARED : null);
+  }
 
-    if (encoded.length > Messenger.MAX_MESSAGE_SIZE) {
-      for (byte[] data : MessageFragmenter.CLIENT_BOUND.fragment(message)) {
-        sendPluginMessage(player, CHANNEL_FRAGMENTED, data);
+  private static int readMaxMessageSize() {
+    try {
+      return Messenger.class.getField("MAX_MESSAGE_SIZE").getInt(null);
+    } catch (ReflectiveOperationException exception) {
+      return LEGACY_FRAME_SIZE;
+    }
+  }
+
+  private static boolean supports(BukkitFeatherPlayer player, int capability) {
+    return MessageCapabilities.has(player.getCapabilities(), capability);
+  }
+
+  private static int getFrameSize(BukkitFeatherPlayer player) {
+    // Leave room for the transfer id prefixing fragmented frames.
+    return supports(player, MessageCapabilities.TRANSFER_IDS)
+        ? player.getMaxFrameSize() - MessageFragmentationConstants.TRANSFER_ID_SIZE
+        : player.getMaxFrameSize();
+  }
+
+  private void enqueue(BukkitFeatherPlayer player, Message<?> message) {
+    recordDropped(
+        player,
+        this.batcher.enqueue(
+            player.getPlayer(),
+            message,
+            supports(player, MessageCapabilities.COMPRESSION),
+            getFrameSize(player),
+            supports(player, MessageCapabilities.BATCHING)));
+  }
+
+  private void awaitCapacity(BukkitFeatherPlayer player) {
+    // The main thread drains the lanes, so it must never wait for them.
+    if (!Bukkit.isPrimaryThread()) {
+      this.lanes.awaitCapacity(player.getPlayer());
+    }
+  }
+
+  private void send(BukkitFeatherPlayer player, FramedMessage message, MessagePriority priority) {
+    boolean transferIds = supports(player, MessageCapabilities.TRANSFER_IDS);
+    int dropped;
+    if (Bukkit.isPrimaryThread()) {
+      dropped =
+          this.lanes.send(player.getPlayer(), message, priority, transferIds, this::sendFrame);
+    } else {
+      // Plugin messages are only sent from the main thread; the next tick's flush sends these.
+      dropped = this.lanes.queue(player.getPlayer(), message, priority, transferIds);
+    }
+    recordDropped(player, dropped);
+  }
+
+  private static void recordDropped(BukkitFeatherPlayer player, int dropped) {
+    if (dropped > 0) {
+      player.recordDroppedMessages(dropped);
+    }
+  }
+
+  private void flush() {
+    this.lanes.flush(this::sendFrame);
+
+    EncodingJob job = this.encoding;
+    if (job != null) {
+      // One job at a time, so that every player receives its messages in order.
+      if (!job.done) {
+        return;
       }
+      this.encoding = null;
+      for (Encoded encoded : job.encoded) {
+        BukkitFeatherPlayer player = this.playerService.getPlayer(encoded.player.getUniqueId());
+        if (player != null) {
+          send(player, encoded.message, encoded.priority);
+        }
+      }
+    }
+
+    if (!this.batcher.isEmpty()) {
+      this.encoding = new EncodingJob();
+      Bukkit.getScheduler().runTaskAsynchronously(this.plugin, this.encoding);
+    }
+  }
+
+  private void sendFrame(Player player, boolean fragmented, int transfer, ByteBuffer frame) {
+    byte[] data;
+    if (transfer == MessageLanes.NO_TRANSFER
+        && frame.arrayOffset() + frame.position() == 0
+        && frame.remaining() == frame.array().length) {
+      data = frame.array();
     } else {
-      sendPluginMessage(player, CHANNEL, encoded);
+      // Bukkit only sends whole arrays, so fragments and prefixed frames are copied out.
+      int offset =
+          transfer == MessageLanes.NO_TRANSFER
+              ? 0
+              : MessageFragmentationConstants.TRANSFER_ID_SIZE;
+      data = new byte[offset + frame.remaining()];
+      if (offset != 0) {
+        data[0] = (byte) transfer;
+      }
+      frame.get(data, offset, frame.remaining());
     }
+    sendPluginMessage(player, fragmented ? CHANNEL_FRAGMENTED : CHANNEL, data);
   }
 
   private void sendPluginMessage(@NotNull Player player, @NotNull String channel, byte[] data) {
     player.sendPluginMessage(this.plugin, channel, data);
   }
 
+  /**
+   * Frames everything queued in the batcher off the main thread. The frames are sent by the flush
+   * following its completion, since Bukkit only sends plugin messages from the main thread.
+   */
+  private final class EncodingJob implements Runnable {
+    private final List<Encoded> encoded = new ArrayList<>();
+    private volatile boolean done;
+
+    @Override
+    public void run() {
+      try {
+        BukkitMessagingService.this.batcher.flush(
+            (player, message, priority) ->
+                this.encoded.add(new Encoded(player, message, priority)));
+      } catch (RuntimeException exception) {
+        // Nothing would report it on the async worker; the frames encoded so far are still sent.
+        BukkitMessagingService.this
+            .plugin
+            .getLogger()
+            .log(Level.SEVERE, "Failed to encode queued messages", exception);
+      } finally {
+        this.done = true;
+      }
+    }
+  }
+
+  private static final class Encoded {
+    private final Player player;
+    private final FramedMessage message;
+    private final MessagePriority priority;
+
+    private Encoded(Player player, FramedMessage message, MessagePriority priority) {
+      this.player = player;
+      this.message = message;
+      this.priority = priority;
+    }
+  }
+
   private static class Handshaking implements Listener {
+    // How long a connection may take from its first message to the hello, in milliseconds.
+    private static final long TIMEOUT_NANOS =
+        TimeUnit.MILLISECONDS.toNanos(
+            MessagingOptions.getLong("handshake.timeout", TimeUnit.SECONDS.toMillis(30)));
+
     private final BukkitMessagingService messagingService;
-    private final Map<UUID, HandshakeState> handshakes = new HashMap<>();
+    private final Map<UUID, Connection> connections = new ConcurrentHashMap<>();
     private final UpdateNotifier updateNotifier;
 
     public Handshaking(BukkitMessagingService messagingService, UpdateNotifier updateNotifier) {
@@ -173,60 +485,91 @@ public class BukkitMessagingService implements Listener {
       this.updateNotifier = updateNotifier;
     }
 
-    private HandshakeState getState(Player player) {
-      return this.handshakes.getOrDefault(player.getUniqueId(), HandshakeState.EXPECTING_HANDSHAKE);
+    private void accept(Player player, Connection connection) {
+      connection.state = HandshakeState.EXPECTING_HELLO;
+      // Clients assume the legacy frame size unless told otherwise.
+      this.messagingService.sendMessage(
+          player,
+          new S2CHandshake(
+              connection.capabilities,
+              connection.frameSize != LEGACY_FRAME_SIZE ? connection.frameSize : 0));
     }
 
-    private void setState(UUID playerId, HandshakeState state) {
-      this.handshakes.put(playerId, state);
+    /** Removes the finished handshake of {@code player}, returning what was negotiated. */
+    @NotNull
+    private Connection take(Player player) {
+      Connection connection = this.connections.remove(player.getUniqueId());
+      return connection != null ? connection : new Connection(System.nanoTime());
     }
 
-    private void accept(Player player) {
-      setState(player.getUniqueId(), HandshakeState.EXPECTING_HELLO);
-      this.messagingService.sendMessage(player, new S2CHandshake());
+    /**
+     * Forgets every connection whose deadline passed, whether it is still handshaking or was
+     * rejected, so that silent connections do not linger until they quit. A connection that sends
+     * anything afterwards starts over.
+     */
+    private void expire() {
+      long now = System.nanoTime();
+      this.connections.values().removeIf(connection -> now - connection.deadline > 0);
     }
 
-    private void reject(Player player) {
-      setState(player.getUniqueId(), HandshakeState.REJECTED);
+    private C2SClientHello handle(Player player, byte[] data) {
+      Connection connection =
+          this.connections.computeIfAbsent(
+              player.getUniqueId(), ignored -> new Connection(System.nanoTime() + TIMEOUT_NANOS));
+      synchronized (connection) {
+        return handle(player, connection, data);
+      }
     }
 
-    private void finish(Player player) {
-      this.handshakes.remove(player.getUniqueId());
-    }
+    private C2SClientHello handle(Player player, Connection connection, byte[] data) {
+      HandshakeState state = connection.state;
 
-    private C2SClientHello handle(Player player, byte[] data) {
-      HandshakeState state = getState(player);
-
-      if (state == HandshakeState.REJECTED) {
+      // Rejected and finished connections are dropped without looking at the message.
+      if (state == HandshakeState.REJECTED || state == HandshakeState.FINISHED) {
+        return null;
+      }
+      if (System.nanoTime() - connection.deadline > 0) {
+        connection.state = HandshakeState.REJECTED;
         return null;
       }
 
       Message<ServerMessageHandler> message;
       try {
+        // Only the id is needed to reject anything but the expected message.
+        if (MessageDecoder.SERVER_BOUND.peekId(data) != getExpectedMessageId(state)) {
+          connection.state = HandshakeState.REJECTED;
+          return null;
+        }
         message = MessageDecoder.SERVER_BOUND.decode(data);
       } catch (Exception exception) {
-        reject(player);
+        connection.state = HandshakeState.REJECTED;
         return null;
       }
 
       if (state == HandshakeState.EXPECTING_HANDSHAKE) {
-        if (handleExpectingHandshake(message)) {
-          accept(player);
+        if (handleExpectingHandshake(connection, message)) {
+          accept(player, connection);
         } else {
-          reject(player);
+          connection.state = HandshakeState.REJECTED;
         }
       } else if (state == HandshakeState.EXPECTING_HELLO) {
         if ((message instanceof C2SClientHello)) {
-          finish(player);
+          connection.state = HandshakeState.FINISHED;
           return (C2SClientHello) message;
         }
-        reject(player);
+        connection.state = HandshakeState.REJECTED;
       }
 
       return null;
     }
 
-    private boolean handleExpectingHandshake(Message<ServerMessageHandler> message) {
+    private static int getExpectedMessageId(HandshakeState state) {
+      return Messages.SERVER_BOUND.getId(
+          state == HandshakeState.EXPECTING_HANDSHAKE ? C2SHandshake.class : C2SClientHello.class);
+    }
+
+    private boolean handleExpectingHandshake(
+        Connection connection, Message<ServerMessageHandler> message) {
       if (!(message instanceof C2SHandshake)) {
         return false;
       }
@@ -235,18 +578,38 @@ public class BukkitMessagingService implements Listener {
       if (protocolVersion > MessageConstants.VERSION) {
         this.updateNotifier.setPotentiallyOutOfDate(protocolVersion);
       }
+      connection.capabilities = MessageCapabilities.negotiate(handshake.getCapabilities());
+      connection.frameSize =
+          MessageCapabilities.negotiateFrameSize(
+              handshake.getMaxFrameSize(), LEGACY_FRAME_SIZE, MAX_FRAME_SIZE);
       return true;
     }
 
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onPlayerQuit(PlayerQuitEvent event) {
-      finish(event.getPlayer());
+      this.connections.remove(event.getPlayer().getUniqueId());
     }
 
     private enum HandshakeState {
       EXPECTING_HANDSHAKE,
       EXPECTING_HELLO,
+      FINISHED,
       REJECTED
     }
+
+    /**
+     * The handshake state of one connection. Rejected connections keep theirs until it expires, so
+     * that anything else they send meanwhile is dropped right away.
+     */
+    private static final class Connection {
+      private final long deadline;
+      private HandshakeState state = HandshakeState.EXPECTING_HANDSHAKE;
+      private int capabilities = MessageCapabilities.NONE;
+      private int frameSize = LEGACY_FRAME_SIZE;
+
+      private Connection(long deadline) {
+        this.deadline = deadline;
+      }
+    }
   }
 }
@@ -10,7 +10,9 @@ import net.digitalingot.feather.serverapi.api.meta.exception.UnsupportedImageFor
 import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
 import net.digitalingot.feather.serverapi.bukkit.FeatherBukkitPlugin;
 import net.digitalingot.feather.serverapi.bukkit.event.player.BukkitPlayerHelloEvent;
+import net.digitalingot.feather.serverapi.bukkit.messaging.BukkitMessagingService;
 import net.digitalingot.feather.serverapi.bukkit.player.BukkitFeatherPlayer;
+import net.digitalingot.feather.serverapi.messaging.PreparedMessage;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CClearDiscordActivity;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CServerBackground;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CServerBackground.Action;
@@ -22,9 +24,15 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class BukkitMetaService implements MetaService, Listener {
+  private static final PreparedMessage CLEAR_DISCORD_ACTIVITY =
+      BukkitMessagingService.prepare(new S2CClearDiscordActivity());
+
   private final ServerListBackgroundFactory serverListBackgroundFactory =
       new BukkitServerListBackgroundFactory();
   @Nullable private volatile ServerListBackground serverListBackground = null;
+  // Sent to every player that joins, so framed once per background.
+  @Nullable private volatile PreparedMessage serverListBackgroundHash = null;
+  @Nullable private volatile PreparedMessage serverListBackgroundData = null;
 
   public BukkitMetaService(@NotNull FeatherBukkitPlugin plugin) {
     Bukkit.getPluginManager().registerEvents(this, plugin);
@@ -35,6 +43,13 @@ public class BukkitMetaService implements MetaService, Listener {
       @NotNull ServerListBackground serverListBackground)
       throws UnsupportedImageFormatException, ImageSizeExceededException, InvalidImageException {
     ServerListBackgroundValidator.validate(serverListBackground);
+    // Readers only see a new hash once the matching data is published.
+    this.serverListBackgroundData =
+        BukkitMessagingService.prepare(
+            new S2CServerBackground(Action.DATA, serverListBackground.getImage()));
+    this.serverListBackgroundHash =
+        BukkitMessagingService.prepare(
+            new S2CServerBackground(Action.HASH, serverListBackground.getHash()));
     this.serverListBackground = serverListBackground;
   }
 
@@ -43,6 +58,16 @@ public class BukkitMetaService implements MetaService, Listener {
     return this.serverListBackground;
   }
 
+  /**
+   * Returns the prepared message carrying the image of the server list background.
+   *
+   * @return the prepared image, or {@code null} if no background is set
+   */
+  @Nullable
+  public PreparedMessage getServerListBackgroundData() {
+    return this.serverListBackgroundData;
+  }
+
   @Override
   public void updateDiscordActivity(
       @NotNull FeatherPlayer player, @NotNull DiscordActivity discordActivity) {
@@ -61,7 +86,7 @@ public class BukkitMetaService implements MetaService, Listener {
 
   @Override
   public void clearDiscordActivity(@NotNull FeatherPlayer player) {
-    ((BukkitFeatherPlayer) player).sendMessage(new S2CClearDiscordActivity());
+    ((BukkitFeatherPlayer) player).sendMessage(CLEAR_DISCORD_ACTIVITY);
   }
 
   @Override
@@ -71,10 +96,9 @@ public class BukkitMetaService implements MetaService, Listener {
 
   @EventHandler
   public void onFeatherPlayerHello(BukkitPlayerHelloEvent event) {
-    ServerListBackground background = getServerListBackground();
-    if (background != null) {
-      ((BukkitFeatherPlayer) event.getPlayer())
-          .sendMessage(new S2CServerBackground(Action.HASH, background.getHash()));
+    PreparedMessage hash = this.serverListBackgroundHash;
+    if (hash != null) {
+      ((BukkitFeatherPlayer) event.getPlayer()).sendMessage(hash);
     }
   }
 }
@@ -1,14 +1,12 @@
 package net.digitalingot.feather.serverapi.bukkit.player;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
 import net.digitalingot.feather.serverapi.api.player.PlayerService;
 import net.digitalingot.feather.serverapi.bukkit.FeatherBukkitPlugin;
 import net.digitalingot.feather.serverapi.bukkit.event.player.FeatherPlayerQuitEvent;
+import net.digitalingot.feather.serverapi.common.player.PlayerRegistry;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -19,7 +17,7 @@ import org.jetbrains.annotations.Nullable;
 
 public class BukkitPlayerService implements PlayerService, Listener {
   private final PluginManager pluginManager;
-  private final Map<UUID, BukkitFeatherPlayer> players = new HashMap<>();
+  private final PlayerRegistry<BukkitFeatherPlayer> players = new PlayerRegistry<>();
 
   public BukkitPlayerService(FeatherBukkitPlugin plugin) {
     this.pluginManager = plugin.getServer().getPluginManager();
@@ -27,7 +25,7 @@ public class BukkitPlayerService implements PlayerService, Listener {
   }
 
   public void register(BukkitFeatherPlayer player) {
-    this.players.put(player.getUniqueId(), player);
+    this.players.register(player);
   }
 
   @Override
@@ -37,7 +35,7 @@ public class BukkitPlayerService implements PlayerService, Listener {
 
   @Override
   public @NotNull Collection<FeatherPlayer> getPlayers() {
-    return Collections.unmodifiableCollection(this.players.values());
+    return this.players.getPlayers();
   }
 
   @EventHandler(priority = EventPriority.HIGHEST)
@@ -9,15 +9,18 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import net.digitalingot.feather.serverapi.api.FeatherAPI;
-import net.digitalingot.feather.serverapi.api.meta.ServerListBackground;
 import net.digitalingot.feather.serverapi.api.model.FeatherMod;
+import net.digitalingot.feather.serverapi.bukkit.meta.BukkitMetaService;
 import net.digitalingot.feather.serverapi.bukkit.ui.BukkitUIPage;
 import net.digitalingot.feather.serverapi.bukkit.ui.BukkitUIService;
 import net.digitalingot.feather.serverapi.bukkit.ui.rpc.RpcService;
+import net.digitalingot.feather.serverapi.common.ratelimit.TokenBucket;
+import net.digitalingot.feather.serverapi.messaging.LazyUtf;
+import net.digitalingot.feather.serverapi.messaging.MessagingOptions;
+import net.digitalingot.feather.serverapi.messaging.PreparedMessage;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CFUIResponse;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CGetEnabledMods;
-import net.digitalingot.feather.serverapi.messaging.messages.client.S2CServerBackground;
-import net.digitalingot.feather.serverapi.messaging.messages.client.S2CServerBackground.Action;
 import net.digitalingot.feather.serverapi.messaging.messages.server.C2SEnabledMods;
 import net.digitalingot.feather.serverapi.messaging.messages.server.C2SFUILoadError;
 import net.digitalingot.feather.serverapi.messaging.messages.server.C2SFUIRequest;
@@ -26,10 +29,14 @@ import net.digitalingot.feather.serverapi.messaging.messages.server.C2SRequestSe
 import org.jetbrains.annotations.NotNull;
 
 class PlayerMessageHandler implements ServerMessageHandler {
+  // RPC requests per second of a single player, across all handlers.
+  private static final int REQUEST_RATE = MessagingOptions.getInt("rpc.rate", 100);
+  private static final int REQUEST_BURST = MessagingOptions.getInt("rpc.burst", 200);
   private final int REQUEST_TIMEOUT_SECONDS = 30;
 
   private final BukkitFeatherPlayer player;
   private final RpcService rpcService;
+  private final TokenBucket requestLimit = new TokenBucket(REQUEST_RATE, REQUEST_BURST);
 
   private boolean sentServerListBackground = false;
 
@@ -59,7 +66,12 @@ class PlayerMessageHandler implements ServerMessageHandler {
     String rpcHost = request.getFrame();
     String rpcPath = request.getPath();
     int requestId = request.getId();
-    String payload = request.getPayload();
+    if (!this.requestLimit.tryAcquire()) {
+      this.player.sendMessage(new S2CFUIResponse(requestId, false, ""));
+      return;
+    }
+    // Left undecoded until a handler reads the body; unroutable requests never decode it.
+    LazyUtf payload = request.getLazyPayload();
     this.rpcService.handle(this.player, rpcHost, rpcPath, requestId, payload);
   }
 
@@ -124,11 +136,10 @@ class PlayerMessageHandler implements ServerMessageHandler {
   @Override
   public void handle(C2SRequestServerBackground serverBackground) {
     if (!this.sentServerListBackground) {
-      ServerListBackground serverListBackground =
-          FeatherAPI.getMetaService().getServerListBackground();
+      BukkitMetaService metaService = (BukkitMetaService) FeatherAPI.getMetaService();
+      PreparedMessage serverListBackground = metaService.getServerListBackgroundData();
       if (serverListBackground != null) {
-        this.player.sendMessage(
-            new S2CServerBackground(Action.DATA, serverListBackground.getImage()));
+        this.player.sendMessage(serverListBackground);
         this.sentServerListBackground = true;
       }
     }
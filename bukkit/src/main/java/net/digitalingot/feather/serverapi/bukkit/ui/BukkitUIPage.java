@@ -7,6 +7,10 @@ import net.digitalingot.feather.serverapi.api.ui.handler.UIFocusHandler;
 import net.digitalingot.feather.serverapi.api.ui.handler.UILifecycleHandler;
 import net.digitalingot.feather.serverapi.api.ui.handler.UILoadHandler;
 import net.digitalingot.feather.serverapi.api.ui.handler.UIVisibilityHandler;
+import net.digitalingot.feather.serverapi.bukkit.messaging.BukkitMessagingService;
+import net.digitalingot.feather.serverapi.messaging.PreparedMessage;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CCreateFUI;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CDestroyFUI;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -15,6 +19,9 @@ public class BukkitUIPage
     implements UIPage, UILifecycleHandler, UILoadHandler, UIFocusHandler, UIVisibilityHandler {
   @NotNull private final Plugin owner;
   @NotNull private final String url;
+  // Identical for every player the page is created for.
+  @NotNull private final PreparedMessage createMessage;
+  @NotNull private final PreparedMessage destroyMessage;
 
   @Nullable private UILifecycleHandler lifecycleHandler;
   @Nullable private UILoadHandler loadHandler;
@@ -24,6 +31,8 @@ public class BukkitUIPage
   public BukkitUIPage(@NotNull Plugin owner, @NotNull String url) {
     this.owner = owner;
     this.url = url;
+    this.createMessage = BukkitMessagingService.prepare(new S2CCreateFUI(getRpcHostname(), url));
+    this.destroyMessage = BukkitMessagingService.prepare(new S2CDestroyFUI(getRpcHostname()));
   }
 
   @NotNull
@@ -41,6 +50,16 @@ public class BukkitUIPage
     return this.url;
   }
 
+  @NotNull
+  PreparedMessage getCreateMessage() {
+    return this.createMessage;
+  }
+
+  @NotNull
+  PreparedMessage getDestroyMessage() {
+    return this.destroyMessage;
+  }
+
   @Override
   public void setLifecycleHandler(@NotNull UILifecycleHandler lifecycleHandler) {
     Objects.requireNonNull(lifecycleHandler);
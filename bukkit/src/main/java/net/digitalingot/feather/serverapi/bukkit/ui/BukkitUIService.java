@@ -9,8 +9,6 @@ import net.digitalingot.feather.serverapi.api.ui.rpc.RpcController;
 import net.digitalingot.feather.serverapi.bukkit.messaging.BukkitMessagingService;
 import net.digitalingot.feather.serverapi.bukkit.player.BukkitFeatherPlayer;
 import net.digitalingot.feather.serverapi.bukkit.ui.rpc.RpcService;
-import net.digitalingot.feather.serverapi.messaging.messages.client.S2CCreateFUI;
-import net.digitalingot.feather.serverapi.messaging.messages.client.S2CDestroyFUI;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CFUIMessage;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CSetFUIState;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CSetFUIState.Action;
@@ -59,16 +57,14 @@ public class BukkitUIService implements UIService {
 
   @Override
   public void createPageForPlayer(@NotNull FeatherPlayer player, @NotNull UIPage page) {
-    BukkitUIPage bukkitPage = (BukkitUIPage) page;
     this.messagingService.sendMessage(
-        (BukkitFeatherPlayer) player,
-        new S2CCreateFUI(bukkitPage.getRpcHostname(), bukkitPage.getPage()));
+        (BukkitFeatherPlayer) player, ((BukkitUIPage) page).getCreateMessage());
   }
 
   @Override
   public void destroyPageForPlayer(@NotNull FeatherPlayer player, @NotNull UIPage page) {
     this.messagingService.sendMessage(
-        (BukkitFeatherPlayer) player, new S2CDestroyFUI(((BukkitUIPage) page).getRpcHostname()));
+        (BukkitFeatherPlayer) player, ((BukkitUIPage) page).getDestroyMessage());
   }
 
   private void setState(
@@ -3,13 +3,14 @@ package net.digitalingot.feather.serverapi.bukkit.ui.rpc;
 import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
 import net.digitalingot.feather.serverapi.api.ui.rpc.RpcRequest;
 import net.digitalingot.feather.serverapi.bukkit.player.BukkitFeatherPlayer;
+import net.digitalingot.feather.serverapi.messaging.LazyUtf;
 import org.jetbrains.annotations.NotNull;
 
 public class BukkitRpcRequest implements RpcRequest {
   @NotNull private final BukkitFeatherPlayer player;
-  @NotNull private final String body;
+  @NotNull private final LazyUtf body;
 
-  public BukkitRpcRequest(@NotNull BukkitFeatherPlayer player, @NotNull String body) {
+  public BukkitRpcRequest(@NotNull BukkitFeatherPlayer player, @NotNull LazyUtf body) {
     this.player = player;
     this.body = body;
   }
@@ -21,6 +22,6 @@ public class BukkitRpcRequest implements RpcRequest {
 
   @Override
   public @NotNull String getBody() {
-    return this.body;
+    return this.body.toString();
   }
 }
@@ -1,24 +1,50 @@
 package net.digitalingot.feather.serverapi.bukkit.ui.rpc;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.lang.invoke.CallSite;
 import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import net.digitalingot.feather.serverapi.api.ui.rpc.RpcController;
+import net.digitalingot.feather.serverapi.api.ui.rpc.RpcHandler;
 import net.digitalingot.feather.serverapi.api.ui.rpc.RpcRequest;
 import net.digitalingot.feather.serverapi.api.ui.rpc.RpcResponse;
+import net.digitalingot.feather.serverapi.common.ratelimit.TokenBucket;
+import net.digitalingot.feather.serverapi.messaging.MessagingOptions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 class RegisteredRpcHandler {
+  private static final int DEFAULT_RATE = MessagingOptions.getInt("rpc.handler.rate", 20);
+
   @NotNull public final RpcHandlerExecutor executor;
   @NotNull private final RpcController controller;
+  // Per-player buckets, dropped once full again since a new one behaves the same.
+  @Nullable private final Cache<UUID, TokenBucket> limits;
+  private final int rate;
+  private final int burst;
 
   public RegisteredRpcHandler(@NotNull RpcController controller, @NotNull Method method)
       throws Throwable {
     this.controller = controller;
     this.executor = generateLambdaExecutor(controller, method);
+
+    RpcHandler annotation = method.getAnnotation(RpcHandler.class);
+    this.rate = annotation.rate() >= 0 ? annotation.rate() : DEFAULT_RATE;
+    this.burst = annotation.burst() >= 0 ? Math.max(1, annotation.burst()) : 2 * this.rate;
+    this.limits =
+        this.rate > 0
+            ? CacheBuilder.newBuilder()
+                .expireAfterAccess(
+                    TokenBucket.getRefillNanos(this.rate, this.burst), TimeUnit.NANOSECONDS)
+                .build()
+            : null;
   }
 
   private static RpcHandlerExecutor generateLambdaExecutor(RpcController controller, Method method)
@@ -46,6 +72,23 @@ class RegisteredRpcHandler {
     return this.controller;
   }
 
+  /**
+   * Takes a request of {@code playerId} against the rate limit of this handler.
+   *
+   * @param playerId the unique id of the requesting player
+   * @return {@code true} if the handler may be invoked
+   */
+  public boolean tryAcquire(@NotNull UUID playerId) {
+    if (this.limits == null) {
+      return true;
+    }
+    try {
+      return this.limits.get(playerId, () -> new TokenBucket(this.rate, this.burst)).tryAcquire();
+    } catch (ExecutionException exception) {
+      throw new AssertionError(exception);
+    }
+  }
+
   public <T> void invoke(RpcRequest request, RpcResponse response) {
     this.executor.invoke(request, response);
   }
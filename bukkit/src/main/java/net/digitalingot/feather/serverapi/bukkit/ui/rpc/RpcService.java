@@ -14,6 +14,7 @@ import net.digitalingot.feather.serverapi.api.ui.rpc.RpcRequest;
 import net.digitalingot.feather.serverapi.api.ui.rpc.RpcResponse;
 import net.digitalingot.feather.serverapi.bukkit.FeatherBukkitPlugin;
 import net.digitalingot.feather.serverapi.bukkit.player.BukkitFeatherPlayer;
+import net.digitalingot.feather.serverapi.messaging.LazyUtf;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CFUIResponse;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -140,20 +141,26 @@ public class RpcService {
   }
 
   public void handle(
-      BukkitFeatherPlayer player, String rpcHostName, String rpcName, int requestId, String body) {
+      BukkitFeatherPlayer player,
+      String rpcHostName,
+      String rpcName,
+      int requestId,
+      LazyUtf body) {
     RegisteredRpcHandler handler = getRpcHandler(rpcHostName, rpcName);
 
-    if (handler != null) {
-      try {
-        handler.invoke(
-            new BukkitRpcRequest(player, body),
-            new BukkitRpcResponse(requestId, player, this.plugin));
-      } catch (Throwable throwable) {
-        this.logger.warning("Error occurred handling RPC request");
-        throwable.printStackTrace();
-      }
-    } else {
+    // Rejected before the body is decoded or any handler sees the request.
+    if (handler == null || !handler.tryAcquire(player.getUniqueId())) {
       player.sendMessage(new S2CFUIResponse(requestId, false, ""));
+      return;
+    }
+
+    try {
+      handler.invoke(
+          new BukkitRpcRequest(player, body),
+          new BukkitRpcResponse(requestId, player, this.plugin));
+    } catch (Throwable throwable) {
+      this.logger.warning("Error occurred handling RPC request");
+      throwable.printStackTrace();
     }
   }
 
@@ -2,6 +2,8 @@ package net.digitalingot.feather.serverapi.bukkit.waypoint;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
 import net.digitalingot.feather.serverapi.api.waypoint.WaypointBuilder;
@@ -10,9 +12,11 @@ import net.digitalingot.feather.serverapi.api.waypoint.WaypointDuration;
 import net.digitalingot.feather.serverapi.api.waypoint.WaypointService;
 import net.digitalingot.feather.serverapi.bukkit.FeatherBukkitPlugin;
 import net.digitalingot.feather.serverapi.bukkit.event.player.BukkitPlayerHelloEvent;
+import net.digitalingot.feather.serverapi.bukkit.messaging.BukkitMessagingService;
 import net.digitalingot.feather.serverapi.bukkit.player.BukkitFeatherPlayer;
 import net.digitalingot.feather.serverapi.bukkit.player.BukkitPlayerService;
 import net.digitalingot.feather.serverapi.common.waypoints.DefaultWaypointBuilder;
+import net.digitalingot.feather.serverapi.messaging.PreparedMessage;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CWaypointCreate;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CWaypointDestroy;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CWorldChange;
@@ -22,6 +26,7 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -107,6 +112,8 @@ public class BukkitWaypointService implements WaypointService, Listener {
 
   private static class WorldSync implements Listener {
     private final BukkitPlayerService playerService;
+    // Every player entering a world receives the same message; frame it once per world.
+    private final Map<UUID, PreparedMessage> worldChanges = new HashMap<>();
 
     public WorldSync(BukkitPlayerService playerService) {
       this.playerService = playerService;
@@ -128,8 +135,16 @@ public class BukkitWaypointService implements WaypointService, Listener {
       }
     }
 
-    private static void sendWorldChange(BukkitFeatherPlayer player, World world) {
-      player.sendMessage(new S2CWorldChange(world.getUID()));
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+      this.worldChanges.remove(event.getWorld().getUID());
+    }
+
+    private void sendWorldChange(BukkitFeatherPlayer player, World world) {
+      player.sendMessage(
+          this.worldChanges.computeIfAbsent(
+              world.getUID(),
+              worldId -> BukkitMessagingService.prepare(new S2CWorldChange(worldId))));
     }
   }
 }
@@ -0,0 +1,87 @@
+package net.digitalingot.feather.serverapi.common.player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The online Feather players of a platform, safe to use from any thread without locking. Lookups
+ * go straight to a concurrent map. {@link #getPlayers()} returns an immutable snapshot that is
+ * shared by all callers until the next registration or removal, so iterating it never observes a
+ * concurrent change and costs no copy while the set of players is stable.
+ *
+ * @param <P> the platform's player type
+ */
+public final class PlayerRegistry<P extends FeatherPlayer> {
+  private final Map<UUID, P> players = new ConcurrentHashMap<>();
+  // Bumped after every change, so a snapshot taken at an older version is known to be stale.
+  private final AtomicLong version = new AtomicLong();
+  @Nullable private volatile Snapshot snapshot;
+
+  /**
+   * Registers {@code player}, replacing any player registered with the same unique id.
+   *
+   * @param player the player to register
+   */
+  public void register(@NotNull P player) {
+    this.players.put(player.getUniqueId(), player);
+    this.version.incrementAndGet();
+  }
+
+  /**
+   * Removes the player registered with {@code playerId}.
+   *
+   * @param playerId the unique id of the player
+   * @return the removed player, or {@code null} if none was registered
+   */
+  @Nullable
+  public P remove(@NotNull UUID playerId) {
+    P player = this.players.remove(playerId);
+    if (player != null) {
+      this.version.incrementAndGet();
+    }
+    return player;
+  }
+
+  @Nullable
+  public P get(@NotNull UUID playerId) {
+    return this.players.get(playerId);
+  }
+
+  /**
+   * Returns the registered players as of some point during the call.
+   *
+   * @return an immutable snapshot of the registered players
+   */
+  @NotNull
+  public Collection<FeatherPlayer> getPlayers() {
+    // Read the version first: a change racing with the copy leaves the snapshot outdated.
+    long version = this.version.get();
+    Snapshot snapshot = this.snapshot;
+    if (snapshot == null || snapshot.version != version) {
+      snapshot =
+          new Snapshot(
+              version,
+              Collections.unmodifiableList(new ArrayList<FeatherPlayer>(this.players.values())));
+      this.snapshot = snapshot;
+    }
+    return snapshot.players;
+  }
+
+  private static final class Snapshot {
+    private final long version;
+    private final Collection<FeatherPlayer> players;
+
+    private Snapshot(long version, Collection<FeatherPlayer> players) {
+      this.version = version;
+      this.players = players;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package net.digitalingot.feather.serverapi.common.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often something may happen: every acquisition takes a token, and tokens are refilled
+ * at a fixed rate up to the size of the bucket, which bounds the burst allowed after a quiet
+ * period. A bucket with a rate of zero or less never runs out.
+ */
+public final class TokenBucket {
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double tokensPerNano;
+  private final double capacity;
+  private double tokens;
+  private long refilled;
+
+  /**
+   * Creates a full bucket.
+   *
+   * @param tokensPerSecond the tokens refilled every second, or zero for no limit
+   * @param capacity the most tokens the bucket holds
+   */
+  public TokenBucket(double tokensPerSecond, double capacity) {
+    this.tokensPerNano = tokensPerSecond / NANOS_PER_SECOND;
+    this.capacity = capacity;
+    this.tokens = capacity;
+    this.refilled = System.nanoTime();
+  }
+
+  /**
+   * Returns how long an untouched bucket takes to fill up from empty, after which it is
+   * indistinguishable from a new one.
+   *
+   * @param tokensPerSecond the tokens refilled every second
+   * @param capacity the most tokens the bucket holds
+   * @return the refill time in nanoseconds
+   */
+  public static long getRefillNanos(double tokensPerSecond, double capacity) {
+    return tokensPerSecond > 0
+        ? (long) Math.ceil(capacity / tokensPerSecond * NANOS_PER_SECOND)
+        : 0;
+  }
+
+  /**
+   * Takes a token if one is left.
+   *
+   * @return {@code true} if a token was taken, {@code false} if the limit is exceeded
+   */
+  public boolean tryAcquire() {
+    if (this.tokensPerNano <= 0) {
+      return true;
+    }
+    synchronized (this) {
+      long now = System.nanoTime();
+      this.tokens =
+          Math.min(this.capacity, this.tokens + (now - this.refilled) * this.tokensPerNano);
+      this.refilled = now;
+      if (this.tokens < 1) {
+        return false;
+      }
+      this.tokens--;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package net.digitalingot.feather.serverapi.common.player;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stresses the {@link PlayerRegistry} the way the platforms use it: players join and quit on some
+ * threads while others iterate snapshots and look players up. Players registered for the whole run
+ * must be in every snapshot and always be found, and no snapshot may hold a player twice.
+ */
+class PlayerRegistryStressTest {
+  private static final int RESIDENTS = 64;
+  private static final int TRANSIENTS = 256;
+  private static final int THREADS_PER_ROLE = 2;
+  private static final long DURATION_MILLIS = 2000;
+
+  private final PlayerRegistry<FeatherPlayer> registry = new PlayerRegistry<>();
+  private final FeatherPlayer[] residents = newPlayers(RESIDENTS);
+  private final FeatherPlayer[] transients = newPlayers(TRANSIENTS);
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private final AtomicLong snapshots = new AtomicLong();
+
+  @Test
+  void concurrentJoinsQuitsAndReads() throws InterruptedException {
+    for (FeatherPlayer resident : this.residents) {
+      this.registry.register(resident);
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int iii = 0; iii < THREADS_PER_ROLE; iii++) {
+      threads.add(new Thread(() -> run(start, deadline, this::joinAndQuit)));
+      threads.add(new Thread(() -> run(start, deadline, this::iterate)));
+      threads.add(new Thread(() -> run(start, deadline, this::lookup)));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertNull(this.failure.get(), () -> "Registry invariant broken: " + this.failure.get());
+    assertTrue(this.snapshots.get() > 0, "No snapshot was iterated");
+    for (FeatherPlayer player : this.transients) {
+      this.registry.remove(player.getUniqueId());
+    }
+    assertEquals(RESIDENTS, this.registry.getPlayers().size(), "Registry lost or kept players");
+  }
+
+  private void run(CountDownLatch start, long deadline, Runnable operation) {
+    try {
+      start.await();
+      while (System.nanoTime() - deadline < 0 && this.failure.get() == null) {
+        operation.run();
+      }
+    } catch (Throwable throwable) {
+      this.failure.compareAndSet(null, throwable);
+    }
+  }
+
+  private void joinAndQuit() {
+    FeatherPlayer player = this.transients[ThreadLocalRandom.current().nextInt(TRANSIENTS)];
+    this.registry.register(player);
+    this.registry.remove(player.getUniqueId());
+  }
+
+  private void iterate() {
+    Collection<FeatherPlayer> players = this.registry.getPlayers();
+    Set<UUID> seen = new HashSet<>();
+    for (FeatherPlayer player : players) {
+      if (!seen.add(player.getUniqueId())) {
+        throw new IllegalStateException("Snapshot holds " + player.getUniqueId() + " twice");
+      }
+    }
+    for (FeatherPlayer resident : this.residents) {
+      if (!seen.contains(resident.getUniqueId())) {
+        throw new IllegalStateException("Snapshot misses " + resident.getUniqueId());
+      }
+    }
+    this.snapshots.incrementAndGet();
+  }
+
+  private void lookup() {
+    FeatherPlayer resident = this.residents[ThreadLocalRandom.current().nextInt(RESIDENTS)];
+    if (this.registry.get(resident.getUniqueId()) != resident) {
+      throw new IllegalStateException("Lookup misses " + resident.getUniqueId());
+    }
+  }
+
+  private static FeatherPlayer[] newPlayers(int count) {
+    FeatherPlayer[] players = new FeatherPlayer[count];
+    for (int iii = 0; iii < count; iii++) {
+      players[iii] = newPlayer();
+    }
+    return players;
+  }
+
+  // Only the unique id is ever called on the registered players.
+  private static FeatherPlayer newPlayer() {
+    UUID uniqueId = UUID.randomUUID();
+    return (FeatherPlayer)
+        Proxy.newProxyInstance(
+            FeatherPlayer.class.getClassLoader(),
+            new Class<?>[] {FeatherPlayer.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("getUniqueId")) {
+                return uniqueId;
+              }
+              throw new UnsupportedOperationException(method.getName());
+            });
+  }
+}
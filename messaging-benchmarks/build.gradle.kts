@@ -0,0 +1,13 @@
+plugins {
+    id("feather-server-api.java-conventions")
+    id("me.champeau.jmh") version "0.6.8"
+}
+
+dependencies {
+    jmh(project(":messaging"))
+}
+
+jmh {
+    jmhVersion.set("1.36")
+    profilers.add("gc")
+}
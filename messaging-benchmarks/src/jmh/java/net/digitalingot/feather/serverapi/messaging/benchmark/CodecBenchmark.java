@@ -0,0 +1,100 @@
+package net.digitalingot.feather.serverapi.messaging.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageDecoder;
+import net.digitalingot.feather.serverapi.messaging.MessageEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes and decodes a {@link SampleMessages sample} of every registered message. Run with {@code
+ * -prof gc} (the default of this module) to see the allocation rate of each codec as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+  @Param({
+    "S2CHandshake",
+    "S2CCreateFUI",
+    "S2CDestroyFUI",
+    "S2CSetFUIState",
+    "S2CFUIMessage",
+    "S2CFUIResponse",
+    "S2CGetEnabledMods",
+    "S2CModsAction",
+    "S2CWaypointCreate",
+    "S2CWaypointDestroy",
+    "S2CWorldChange",
+    "S2CServerBackground",
+    "S2CSetDiscordActivity",
+    "S2CClearDiscordActivity",
+    "S2CMissPenaltyState",
+    "S2CCompressed",
+    "S2CBatch",
+    "C2SHandshake",
+    "C2SClientHello",
+    "C2SFUIStateChange",
+    "C2SFUILoadError",
+    "C2SFUIRequest",
+    "C2SEnabledMods",
+    "C2SRequestServerBackground"
+  })
+  public String message;
+
+  private Message<?> sample;
+  private MessageEncoder encoder;
+  private MessageDecoder<?> decoder;
+  private byte[] encoded;
+  private ByteBuffer target;
+
+  @Setup
+  public void setUp() {
+    this.sample = SampleMessages.create(this.message);
+    if (this.message.startsWith("S2C")) {
+      this.encoder = MessageEncoder.CLIENT_BOUND;
+      this.decoder = MessageDecoder.CLIENT_BOUND;
+    } else {
+      this.encoder = MessageEncoder.SERVER_BOUND;
+      this.decoder = MessageDecoder.SERVER_BOUND;
+    }
+    this.encoded = this.encoder.encode(this.sample);
+    this.target = ByteBuffer.allocate(this.encoded.length);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return this.encoder.encode(this.sample);
+  }
+
+  @Benchmark
+  public ByteBuffer encodeInto() {
+    this.target.clear();
+    this.encoder.encode(this.sample, this.target);
+    return this.target;
+  }
+
+  @Benchmark
+  public int encodedSize() {
+    return this.encoder.getEncodedSize(this.sample);
+  }
+
+  @Benchmark
+  public Message<?> decode() {
+    return this.decoder.decode(this.encoded);
+  }
+}
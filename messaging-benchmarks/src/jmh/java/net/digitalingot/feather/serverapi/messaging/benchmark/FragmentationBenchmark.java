@@ -0,0 +1,91 @@
+package net.digitalingot.feather.serverapi.messaging.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.digitalingot.feather.serverapi.messaging.FramedMessage;
+import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageDecoder;
+import net.digitalingot.feather.serverapi.messaging.MessageFragmenter;
+import net.digitalingot.feather.serverapi.messaging.MessageReassembler;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CServerBackground;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Fragments a server background of the given size and reassembles it again, as a client and the
+ * fragmented channel would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FragmentationBenchmark {
+  private static final Object SENDER = new Object();
+
+  // 8 MB rather than 8 MiB, which exceeds MessageFragmentationConstants.MAX_SIZE.
+  @Param({"32000", "512000", "8000000"})
+  public int size;
+
+  private S2CServerBackground message;
+  private List<byte[]> fragments;
+  private MessageReassembler<Object> reassembler;
+
+  @Setup
+  public void setUp() {
+    byte[] data = new byte[this.size];
+    new Random(this.size).nextBytes(data);
+    this.message = new S2CServerBackground(S2CServerBackground.Action.DATA, data);
+    this.fragments = MessageFragmenter.CLIENT_BOUND.fragment(this.message);
+    this.reassembler = new MessageReassembler<>();
+  }
+
+  @Benchmark
+  public List<byte[]> fragment() {
+    return MessageFragmenter.CLIENT_BOUND.fragment(this.message);
+  }
+
+  @Benchmark
+  public void stream(Blackhole blackhole) {
+    MessageFragmenter.CLIENT_BOUND.stream(this.message, blackhole::consume);
+  }
+
+  // Takes every frame, since bulk messages like the background are only serialized once taken.
+  @Benchmark
+  public void frame(Blackhole blackhole) {
+    FramedMessage framed = MessageFragmenter.CLIENT_BOUND.frame(this.message, Short.MAX_VALUE);
+    for (int iii = 0; iii < framed.getFrameCount(); iii++) {
+      blackhole.consume(framed.getFrame(iii));
+    }
+  }
+
+  @Benchmark
+  public Message<?> reassemble() {
+    Message<?> message = null;
+    for (byte[] fragment : this.fragments) {
+      message = this.reassembler.accept(SENDER, fragment, MessageDecoder.CLIENT_BOUND);
+    }
+    return message;
+  }
+
+  @Benchmark
+  public Message<?> roundTrip() {
+    Message<?> message = null;
+    for (byte[] fragment : MessageFragmenter.CLIENT_BOUND.fragment(this.message)) {
+      message = this.reassembler.accept(SENDER, fragment, MessageDecoder.CLIENT_BOUND);
+    }
+    return message;
+  }
+}
@@ -0,0 +1,24 @@
+package net.digitalingot.feather.serverapi.messaging.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import net.digitalingot.feather.serverapi.messaging.SimpleMessageBuffer;
+
+/** The string codec {@link SimpleMessageBuffer} used before its UTF-8 fast path, as a baseline. */
+final class LegacyUtf {
+  private LegacyUtf() {
+    throw new AssertionError();
+  }
+
+  static void write(SimpleMessageBuffer buffer, String string) {
+    byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+    buffer.writeVarInt(encoded.length);
+    buffer.writeBytes(encoded);
+  }
+
+  static String read(SimpleMessageBuffer buffer) {
+    int encodedLength = buffer.readVarInt();
+    byte[] encoded = new byte[encodedLength];
+    buffer.readBytes(encoded);
+    return new String(encoded, StandardCharsets.UTF_8);
+  }
+}
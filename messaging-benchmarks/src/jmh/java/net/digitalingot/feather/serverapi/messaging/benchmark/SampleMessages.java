@@ -0,0 +1,144 @@
+package net.digitalingot.feather.serverapi.messaging.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageEncoder;
+import net.digitalingot.feather.serverapi.messaging.domain.FeatherMod;
+import net.digitalingot.feather.serverapi.messaging.domain.Platform;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CBatch;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CClearDiscordActivity;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CCompressed;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CCreateFUI;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CDestroyFUI;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CFUIMessage;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CFUIResponse;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CGetEnabledMods;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CHandshake;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CMissPenaltyState;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CModsAction;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CServerBackground;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CSetDiscordActivity;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CSetFUIState;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CWaypointCreate;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CWaypointDestroy;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CWorldChange;
+import net.digitalingot.feather.serverapi.messaging.messages.server.C2SClientHello;
+import net.digitalingot.feather.serverapi.messaging.messages.server.C2SEnabledMods;
+import net.digitalingot.feather.serverapi.messaging.messages.server.C2SFUILoadError;
+import net.digitalingot.feather.serverapi.messaging.messages.server.C2SFUIRequest;
+import net.digitalingot.feather.serverapi.messaging.messages.server.C2SFUIStateChange;
+import net.digitalingot.feather.serverapi.messaging.messages.server.C2SHandshake;
+import net.digitalingot.feather.serverapi.messaging.messages.server.C2SRequestServerBackground;
+
+/**
+ * A representative instance of every registered message, sized like what plugins send in
+ * practice. Keep in sync with the {@code @Param} list of {@link CodecBenchmark}.
+ */
+final class SampleMessages {
+  private static final UUID ID = new UUID(0x0123456789abcdefL, 0xfedcba9876543210L);
+  private static final String FRAME = "feather-example";
+  private static final String JSON =
+      "{\"type\":\"update\",\"entries\":[{\"name\":\"alpha\",\"value\":1},"
+          + "{\"name\":\"beta\",\"value\":2},{\"name\":\"gamma\",\"value\":3}]}";
+  private static final List<FeatherMod> MODS =
+      Arrays.asList(
+          new FeatherMod("zoom"),
+          new FeatherMod("perspective"),
+          new FeatherMod("minimap"),
+          new FeatherMod("waypoints"));
+
+  private SampleMessages() {
+    throw new AssertionError();
+  }
+
+  static Message<?> create(String name) {
+    switch (name) {
+      case "S2CHandshake":
+        return new S2CHandshake();
+      case "S2CCreateFUI":
+        return new S2CCreateFUI(FRAME, "https://example.com/ui/index.html");
+      case "S2CDestroyFUI":
+        return new S2CDestroyFUI(FRAME);
+      case "S2CSetFUIState":
+        return new S2CSetFUIState(FRAME, S2CSetFUIState.Action.VISIBILITY, true);
+      case "S2CFUIMessage":
+        return new S2CFUIMessage(FRAME, JSON);
+      case "S2CFUIResponse":
+        return new S2CFUIResponse(42, true, JSON);
+      case "S2CGetEnabledMods":
+        return new S2CGetEnabledMods(42);
+      case "S2CModsAction":
+        return new S2CModsAction(S2CModsAction.Action.BLOCK, MODS);
+      case "S2CWaypointCreate":
+        return new S2CWaypointCreate(ID, ID, 128, 64, -256, 0xff8800, "Base");
+      case "S2CWaypointDestroy":
+        return new S2CWaypointDestroy(ID);
+      case "S2CWorldChange":
+        return new S2CWorldChange(ID);
+      case "S2CServerBackground":
+        return new S2CServerBackground(S2CServerBackground.Action.HASH, new byte[32]);
+      case "S2CSetDiscordActivity":
+        return new S2CSetDiscordActivity(
+            "logo", "Feather", "In a match", "Bed Wars", 2, 4, 1_700_000_000_000L, null);
+      case "S2CClearDiscordActivity":
+        return new S2CClearDiscordActivity();
+      case "S2CMissPenaltyState":
+        return new S2CMissPenaltyState(true);
+      case "S2CCompressed":
+        return compressed(new S2CFUIMessage(FRAME, repeat(JSON, 32)));
+      case "S2CBatch":
+        return batch(
+            new S2CSetFUIState(FRAME, S2CSetFUIState.Action.FOCUS, true),
+            new S2CFUIMessage(FRAME, JSON),
+            new S2CWaypointDestroy(ID),
+            new S2CMissPenaltyState(false));
+      case "C2SHandshake":
+        return new C2SHandshake();
+      case "C2SClientHello":
+        return new C2SClientHello(Platform.FABRIC, MODS);
+      case "C2SFUIStateChange":
+        return new C2SFUIStateChange(FRAME, C2SFUIStateChange.StateType.FOCUS_GAINED);
+      case "C2SFUILoadError":
+        return new C2SFUILoadError(FRAME, "net::ERR_CONNECTION_REFUSED");
+      case "C2SFUIRequest":
+        return new C2SFUIRequest(42, FRAME, "getEntries", JSON);
+      case "C2SEnabledMods":
+        return new C2SEnabledMods(42, MODS);
+      case "C2SRequestServerBackground":
+        return new C2SRequestServerBackground();
+      default:
+        throw new IllegalArgumentException("No sample for " + name);
+    }
+  }
+
+  private static S2CCompressed compressed(Message<?> message) {
+    byte[] encoded = MessageEncoder.CLIENT_BOUND.encode(message);
+    Deflater deflater = new Deflater();
+    deflater.setInput(encoded);
+    deflater.finish();
+    byte[] output = new byte[encoded.length + 64];
+    int length = deflater.deflate(output);
+    deflater.end();
+    return new S2CCompressed(encoded.length, Arrays.copyOf(output, length));
+  }
+
+  private static S2CBatch batch(Message<?>... messages) {
+    List<byte[]> encoded = new ArrayList<>(messages.length);
+    for (Message<?> message : messages) {
+      encoded.add(MessageEncoder.CLIENT_BOUND.encode(message));
+    }
+    return new S2CBatch(encoded);
+  }
+
+  private static String repeat(String value, int count) {
+    StringBuilder builder = new StringBuilder(value.length() * count);
+    for (int iii = 0; iii < count; iii++) {
+      builder.append(value);
+    }
+    return builder.toString();
+  }
+}
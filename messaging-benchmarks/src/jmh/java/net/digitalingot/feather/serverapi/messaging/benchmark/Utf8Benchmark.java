@@ -0,0 +1,85 @@
+package net.digitalingot.feather.serverapi.messaging.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.digitalingot.feather.serverapi.messaging.SimpleMessageBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Compares {@link SimpleMessageBuffer}'s string codec against the {@link LegacyUtf} baseline. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Utf8Benchmark {
+  private static final String NON_ASCII = "éß€中";
+
+  @Param({"8", "16", "256", "16384"})
+  public int length;
+
+  @Param({"ascii", "mixed"})
+  public String content;
+
+  private String string;
+  private ByteBuffer target;
+  private ByteBuffer encoded;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(this.length);
+    StringBuilder builder = new StringBuilder(this.length);
+    for (int iii = 0; iii < this.length; iii++) {
+      if (this.content.equals("mixed") && random.nextInt(8) == 0) {
+        builder.append(NON_ASCII.charAt(random.nextInt(NON_ASCII.length())));
+      } else {
+        builder.append((char) ('a' + random.nextInt(26)));
+      }
+    }
+    this.string = builder.toString();
+    this.target = ByteBuffer.allocate(this.length * 3 + 5);
+
+    SimpleMessageBuffer buffer = new SimpleMessageBuffer(this.target);
+    buffer.writeUtf(this.string);
+    byte[] bytes = new byte[this.target.position()];
+    System.arraycopy(this.target.array(), 0, bytes, 0, bytes.length);
+    this.encoded = ByteBuffer.wrap(bytes);
+  }
+
+  @Benchmark
+  public ByteBuffer writeLegacy() {
+    this.target.clear();
+    LegacyUtf.write(new SimpleMessageBuffer(this.target), this.string);
+    return this.target;
+  }
+
+  @Benchmark
+  public ByteBuffer writeCurrent() {
+    this.target.clear();
+    new SimpleMessageBuffer(this.target).writeUtf(this.string);
+    return this.target;
+  }
+
+  @Benchmark
+  public String readLegacy() {
+    this.encoded.rewind();
+    return LegacyUtf.read(new SimpleMessageBuffer(this.encoded));
+  }
+
+  @Benchmark
+  public String readCurrent() {
+    this.encoded.rewind();
+    return new SimpleMessageBuffer(this.encoded).readUtf();
+  }
+}
@@ -0,0 +1,57 @@
+package net.digitalingot.feather.serverapi.messaging.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
+import net.digitalingot.feather.serverapi.messaging.SimpleMessageBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Writes and reads a single varint of every encoded length. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VarIntBenchmark {
+  @Param({"1", "127", "16383", "2097151", "-1"})
+  public int value;
+
+  private ByteBuffer target;
+  private ByteBuffer encoded;
+
+  @Setup
+  public void setUp() {
+    this.target = ByteBuffer.allocate(MessageSizes.varInt(this.value));
+    this.encoded = ByteBuffer.allocate(this.target.capacity());
+    new SimpleMessageBuffer(this.encoded).writeVarInt(this.value);
+  }
+
+  @Benchmark
+  public ByteBuffer write() {
+    this.target.clear();
+    new SimpleMessageBuffer(this.target).writeVarInt(this.value);
+    return this.target;
+  }
+
+  @Benchmark
+  public int read() {
+    this.encoded.rewind();
+    return new SimpleMessageBuffer(this.encoded).readVarInt();
+  }
+
+  @Benchmark
+  public int size() {
+    return MessageSizes.varInt(this.value);
+  }
+}
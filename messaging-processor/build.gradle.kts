@@ -0,0 +1,3 @@
+plugins {
+    id("feather-server-api.java-conventions")
+}
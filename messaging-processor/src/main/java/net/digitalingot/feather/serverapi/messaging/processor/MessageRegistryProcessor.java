@@ -0,0 +1,276 @@
+package net.digitalingot.feather.serverapi.messaging.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the server-bound and client-bound message tables from {@code @MessageId} annotations.
+ *
+ * <p>Each table dispatches on the message id with a plain {@code switch}, so decoding calls the
+ * message's reader constructor directly and encoding calls {@code write} and {@code getEncodedSize}
+ * on the concrete message class. Ids are validated to be unique and dense per direction.
+ */
+@SupportedAnnotationTypes(MessageRegistryProcessor.MESSAGE_ID)
+public class MessageRegistryProcessor extends AbstractProcessor {
+  static final String PACKAGE = "net.digitalingot.feather.serverapi.messaging";
+  static final String MESSAGE_ID = PACKAGE + ".MessageId";
+  private static final String MESSAGE = PACKAGE + ".Message";
+  private static final String MESSAGE_READER = PACKAGE + ".MessageReader";
+
+  private boolean generated;
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    if (this.generated || annotations.isEmpty()) {
+      return false;
+    }
+    this.generated = true;
+
+    TypeElement annotation = annotations.iterator().next();
+    Map<Direction, Map<Integer, TypeElement>> tables = new EnumMap<>(Direction.class);
+    for (Direction direction : Direction.values()) {
+      tables.put(direction, new TreeMap<>());
+    }
+
+    boolean valid = true;
+    for (Element element : round.getElementsAnnotatedWith(annotation)) {
+      valid &= collect((TypeElement) element, tables);
+    }
+    for (Map.Entry<Direction, Map<Integer, TypeElement>> table : tables.entrySet()) {
+      valid &= checkDense(table.getKey(), table.getValue());
+    }
+    if (!valid) {
+      return true;
+    }
+
+    for (Map.Entry<Direction, Map<Integer, TypeElement>> table : tables.entrySet()) {
+      try {
+        generate(table.getKey(), table.getValue());
+      } catch (IOException exception) {
+        error(null, "Could not write " + table.getKey().table + ": " + exception.getMessage());
+      }
+    }
+    return true;
+  }
+
+  private boolean collect(TypeElement element, Map<Direction, Map<Integer, TypeElement>> tables) {
+    if (element.getKind() != ElementKind.CLASS
+        || element.getModifiers().contains(Modifier.ABSTRACT)
+        || !element.getModifiers().contains(Modifier.PUBLIC)) {
+      error(element, "@MessageId must annotate a public, non-abstract class");
+      return false;
+    }
+    if (!hasReaderConstructor(element)) {
+      error(element, "Message must declare a public constructor taking a MessageReader");
+      return false;
+    }
+    Direction direction = getDirection(element);
+    if (direction == null) {
+      error(element, "Message must implement Message of a server or client message handler");
+      return false;
+    }
+    int id = getId(element);
+    if (id < 0) {
+      error(element, "Message id must not be negative");
+      return false;
+    }
+    TypeElement existing = tables.get(direction).putIfAbsent(id, element);
+    if (existing != null) {
+      error(element, "Message id " + id + " already assigned to " + existing.getQualifiedName());
+      return false;
+    }
+    return true;
+  }
+
+  private boolean checkDense(Direction direction, Map<Integer, TypeElement> table) {
+    int expected = 0;
+    for (Map.Entry<Integer, TypeElement> entry : table.entrySet()) {
+      if (entry.getKey() != expected) {
+        error(entry.getValue(), direction + " message id " + expected + " is not assigned");
+        return false;
+      }
+      expected++;
+    }
+    return true;
+  }
+
+  private boolean hasReaderConstructor(TypeElement element) {
+    for (ExecutableElement constructor :
+        ElementFilter.constructorsIn(element.getEnclosedElements())) {
+      if (constructor.getModifiers().contains(Modifier.PUBLIC)
+          && constructor.getParameters().size() == 1
+          && constructor.getParameters().get(0).asType().toString().equals(MESSAGE_READER)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Direction getDirection(TypeElement element) {
+    Types types = this.processingEnv.getTypeUtils();
+    TypeElement message = this.processingEnv.getElementUtils().getTypeElement(MESSAGE);
+    for (Direction direction : Direction.values()) {
+      TypeElement handler =
+          this.processingEnv.getElementUtils().getTypeElement(PACKAGE + "." + direction.handler);
+      DeclaredType expected = types.getDeclaredType(message, handler.asType());
+      if (types.isAssignable(element.asType(), expected)) {
+        return direction;
+      }
+    }
+    return null;
+  }
+
+  private int getId(TypeElement element) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+      if (!type.getQualifiedName().contentEquals(MESSAGE_ID)) {
+        continue;
+      }
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value :
+          mirror.getElementValues().entrySet()) {
+        if (value.getKey().getSimpleName().contentEquals("value")) {
+          return (Integer) value.getValue().getValue();
+        }
+      }
+    }
+    throw new IllegalStateException("Missing @MessageId on " + element);
+  }
+
+  private void generate(Direction direction, Map<Integer, TypeElement> table) throws IOException {
+    List<String> messages = new ArrayList<>();
+    Set<String> imports = new TreeSet<>();
+    List<Element> originating = new ArrayList<>();
+    for (TypeElement element : table.values()) {
+      messages.add(element.getSimpleName().toString());
+      imports.add(element.getQualifiedName().toString());
+      originating.add(element);
+    }
+
+    String handler = direction.handler;
+    try (PrintWriter out =
+        new PrintWriter(
+            this.processingEnv
+                .getFiler()
+                .createSourceFile(
+                    PACKAGE + "." + direction.table, originating.toArray(new Element[0]))
+                .openWriter())) {
+      out.println("package " + PACKAGE + ";");
+      out.println();
+      for (String type : imports) {
+        out.println("import " + type + ";");
+      }
+      out.println();
+      out.println("/**");
+      out.println(" * " + direction + " message table, generated by MessageRegistryProcessor from");
+      out.println(" * {@link MessageId} annotations. Do not edit.");
+      out.println(" */");
+      out.println("final class " + direction.table + " {");
+      out.println("  static final int SIZE = " + messages.size() + ";");
+      out.println();
+      // Resolved once per class instead of comparing against every message on every lookup.
+      out.println("  private static final ClassValue<Integer> IDS =");
+      out.println("      new ClassValue<Integer>() {");
+      out.println("        @Override");
+      out.println("        protected Integer computeValue(Class<?> message) {");
+      out.println("          return findId(message);");
+      out.println("        }");
+      out.println("      };");
+      out.println();
+      out.println("  private " + direction.table + "() {");
+      out.println("    throw new AssertionError();");
+      out.println("  }");
+      out.println();
+      out.println("  static Message<" + handler + "> create(int id, MessageReader reader) {");
+      out.println("    switch (id) {");
+      for (int id = 0; id < messages.size(); id++) {
+        out.println("      case " + id + ":");
+        out.println("        return new " + messages.get(id) + "(reader);");
+      }
+      out.println("      default:");
+      out.println("        return null;");
+      out.println("    }");
+      out.println("  }");
+      out.println();
+      out.println("  static int getId(Class<?> message) {");
+      out.println("    return IDS.get(message);");
+      out.println("  }");
+      out.println();
+      out.println("  private static int findId(Class<?> message) {");
+      for (int id = 0; id < messages.size(); id++) {
+        out.println("    if (message == " + messages.get(id) + ".class) {");
+        out.println("      return " + id + ";");
+        out.println("    }");
+      }
+      out.println("    return -1;");
+      out.println("  }");
+      out.println();
+      out.println("  static void write(int id, Message<?> message, MessageWriter writer) {");
+      out.println("    switch (id) {");
+      for (int id = 0; id < messages.size(); id++) {
+        out.println("      case " + id + ":");
+        out.println("        ((" + messages.get(id) + ") message).write(writer);");
+        out.println("        return;");
+      }
+      out.println("      default:");
+      out.println("        throw new IllegalArgumentException(\"Unknown message id \" + id);");
+      out.println("    }");
+      out.println("  }");
+      out.println();
+      out.println("  static int getEncodedSize(int id, Message<?> message) {");
+      out.println("    switch (id) {");
+      for (int id = 0; id < messages.size(); id++) {
+        out.println("      case " + id + ":");
+        out.println("        return ((" + messages.get(id) + ") message).getEncodedSize();");
+      }
+      out.println("      default:");
+      out.println("        throw new IllegalArgumentException(\"Unknown message id \" + id);");
+      out.println("    }");
+      out.println("  }");
+      out.println("}");
+    }
+  }
+
+  private void error(Element element, String message) {
+    this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private enum Direction {
+    SERVER_BOUND("ServerMessageHandler", "ServerBoundMessageTable"),
+    CLIENT_BOUND("ClientMessageHandler", "ClientBoundMessageTable");
+
+    private final String handler;
+    private final String table;
+
+    Direction(String handler, String table) {
+      this.handler = handler;
+      this.table = table;
+    }
+  }
+}
@@ -1,4 +1,8 @@
 plugins {
     id("feather-server-api.java-conventions")
     id("feather-server-api.publishing-conventions")
-}
\ No newline at end of file
+}
+
+dependencies {
+    annotationProcessor(project(":messaging-processor"))
+}
@@ -0,0 +1,162 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+import net.digitalingot.feather.serverapi.messaging.exception.OverflowException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Base for {@link MessageWriter}s that are not backed by a single growable buffer. Every
+ * higher-level write is expressed through {@link #writeByte(byte)} and {@link #writeBytes(byte[],
+ * int, int)}, producing exactly the same wire format as {@link SimpleMessageBuffer}.
+ */
+abstract class AbstractMessageWriter implements MessageWriter {
+  private static final int WORST_CASE_UTF_ENCODED_SIZE = 3;
+
+  @Override
+  public abstract MessageWriter writeByte(byte value);
+
+  protected abstract void writeBytes(byte[] bytes, int offset, int length);
+
+  @Override
+  public MessageWriter writeInt(int value) {
+    writeByte((byte) (value >>> 24));
+    writeByte((byte) (value >>> 16));
+    writeByte((byte) (value >>> 8));
+    writeByte((byte) value);
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeVarInt(int value) {
+    while (true) {
+      int bits = value & 0x7F;
+      value >>>= 7;
+      if (value == 0) {
+        writeByte((byte) bits);
+        return this;
+      }
+      writeByte((byte) (bits | 0x80));
+    }
+  }
+
+  @Override
+  public MessageWriter writeUtf(@NotNull String string) {
+    return writeUtf(string, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public MessageWriter writeUtf(@NotNull String string, int limit) {
+    if (string.length() > limit) {
+      throw new OverflowException("String", string.length(), limit);
+    }
+    byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+    int encodingLimit = limit * WORST_CASE_UTF_ENCODED_SIZE;
+    if (encoded.length > encodingLimit) {
+      throw new OverflowException("String", encoded.length, encodingLimit);
+    }
+    writeVarInt(encoded.length);
+    writeBytes(encoded, 0, encoded.length);
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeUnsignedByte(short value) {
+    return writeByte((byte) value);
+  }
+
+  @Override
+  public MessageWriter writeByteArray(byte[] bytes) {
+    writeVarInt(bytes.length);
+    writeBytes(bytes, 0, bytes.length);
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeBool(boolean value) {
+    return writeByte((byte) (value ? 1 : 0));
+  }
+
+  @Override
+  public <T> MessageWriter writeCollection(
+      @NotNull Collection<T> items, @NotNull Encoder<T> encoder) {
+    writeVarInt(items.size());
+    for (T item : items) {
+      encoder.accept(this, item);
+    }
+    return this;
+  }
+
+  @Override
+  public <E extends Enum<E>> MessageWriter writeEnum(@NotNull Enum<E> value) {
+    return writeVarInt(value.ordinal());
+  }
+
+  @Override
+  public MessageWriter writeLong(long value) {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeUUID(@NotNull UUID value) {
+    writeLong(value.getMostSignificantBits());
+    writeLong(value.getLeastSignificantBits());
+    return this;
+  }
+
+  @Override
+  public <T> MessageWriter writeOptional(@Nullable T value, @NotNull Encoder<T> encoder) {
+    if (value != null) {
+      writeBool(true);
+      encoder.accept(this, value);
+    } else {
+      writeBool(false);
+    }
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeOptionalUtf(@Nullable String string) {
+    return writeOptionalUtf(string, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public MessageWriter writeOptionalUtf(@Nullable String string, int limit) {
+    writeBool(string != null);
+    if (string != null) {
+      writeUtf(string, limit);
+    }
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeOptionalVarInt(boolean present, int value) {
+    writeBool(present);
+    if (present) {
+      writeVarInt(value);
+    }
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeOptionalInt(boolean present, int value) {
+    writeBool(present);
+    if (present) {
+      writeInt(value);
+    }
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeOptionalLong(boolean present, long value) {
+    writeBool(present);
+    if (present) {
+      writeLong(value);
+    }
+    return this;
+  }
+}
@@ -0,0 +1,57 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes an encoded message straight into a {@link DataOutput}, such as the output a proxy hands
+ * to a plugin message encoder, so the message is serialized into the transport's own buffer
+ * without an intermediate array.
+ */
+final class DataOutputMessageWriter extends AbstractMessageWriter {
+  private final DataOutput output;
+
+  DataOutputMessageWriter(DataOutput output) {
+    this.output = output;
+  }
+
+  @Override
+  public MessageWriter writeByte(byte value) {
+    try {
+      this.output.writeByte(value);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+    return this;
+  }
+
+  @Override
+  protected void writeBytes(byte[] bytes, int offset, int length) {
+    try {
+      this.output.write(bytes, offset, length);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  @Override
+  public MessageWriter writeInt(int value) {
+    try {
+      this.output.writeInt(value);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeLong(long value) {
+    try {
+      this.output.writeLong(value);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+    return this;
+  }
+}
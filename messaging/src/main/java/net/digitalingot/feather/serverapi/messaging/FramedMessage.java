@@ -0,0 +1,98 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A message that has been serialized and split into the frames it is sent as. Frames of a
+ * fragmented message belong on the fragmented channel, starting with the fragmentation header.
+ *
+ * <p>The frames of a fragmented message are slices of the one array it was serialized into, so
+ * framing copies the message at most once. The same frames are shared by every recipient of the
+ * message, so they are only handed out as read-only buffers.
+ *
+ * <p>A streamed message holds no frames at all: each is serialized from the message whenever it
+ * is asked for, so at most one frame of it is in memory per send.
+ */
+public final class FramedMessage {
+  private final boolean fragmented;
+  @NotNull private final IntFunction<ByteBuffer> frames;
+  private final int frameCount;
+  private final int size;
+
+  private FramedMessage(
+      boolean fragmented, @NotNull IntFunction<ByteBuffer> frames, int frameCount, int size) {
+    this.fragmented = fragmented;
+    this.frames = frames;
+    this.frameCount = frameCount;
+    this.size = size;
+  }
+
+  static FramedMessage single(byte @NotNull [] frame) {
+    List<ByteBuffer> frames = Collections.singletonList(ByteBuffer.wrap(frame));
+    return new FramedMessage(false, frames::get, 1, frame.length);
+  }
+
+  static FramedMessage fragmented(@NotNull List<ByteBuffer> frames) {
+    int size = 0;
+    for (ByteBuffer frame : frames) {
+      size += frame.remaining();
+    }
+    return new FramedMessage(true, frames::get, frames.size(), size);
+  }
+
+  /**
+   * Creates a fragmented message whose frames are produced on demand.
+   *
+   * @param frames produces a new buffer holding the frame of the given index
+   * @param frameCount the number of frames, including the header
+   * @param size the bytes of all frames together
+   */
+  static FramedMessage streamed(@NotNull IntFunction<ByteBuffer> frames, int frameCount, int size) {
+    return new FramedMessage(true, frames, frameCount, size);
+  }
+
+  public boolean isFragmented() {
+    return this.fragmented;
+  }
+
+  public int getFrameCount() {
+    return this.frameCount;
+  }
+
+  /**
+   * Returns a frame of this message, in sending order.
+   *
+   * @param index the index of the frame, the header being the first frame of a fragmented message
+   * @return a read-only view of the frame, positioned at its start
+   */
+  @NotNull
+  public ByteBuffer getFrame(int index) {
+    return frame(index).asReadOnlyBuffer();
+  }
+
+  /** Like {@link #getFrame(int)}, but keeps the backing array accessible for sending. */
+  @NotNull
+  ByteBuffer getSharedFrame(int index) {
+    return frame(index).duplicate();
+  }
+
+  private ByteBuffer frame(int index) {
+    if (index < 0 || index >= this.frameCount) {
+      throw new IndexOutOfBoundsException("Frame " + index + " of " + this.frameCount);
+    }
+    return this.frames.apply(index);
+  }
+
+  /**
+   * Returns the bytes of all frames together.
+   *
+   * @return the framed size
+   */
+  public int getSize() {
+    return this.size;
+  }
+}
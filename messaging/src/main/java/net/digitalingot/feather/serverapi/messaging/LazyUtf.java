@@ -0,0 +1,78 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.nio.charset.StandardCharsets;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A string field that is only decoded from its UTF-8 bytes when first read. Decoding a message
+ * with a large string field, such as an RPC payload, therefore costs no more than skipping it as
+ * long as nobody asks for the string.
+ *
+ * <p>A decoded view references the byte array the message was read from, so that array must not
+ * be reused while the view is reachable. {@link MessageDecoder} takes care of that.
+ */
+public final class LazyUtf {
+  private final byte[] bytes;
+  private final int offset;
+  private final int length;
+  private String value;
+
+  private LazyUtf(byte[] bytes, int offset, int length, String value) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.length = length;
+    this.value = value;
+  }
+
+  /**
+   * Wraps an already decoded string.
+   *
+   * @param value the string
+   * @return the wrapped string
+   */
+  @NotNull
+  public static LazyUtf of(@NotNull String value) {
+    return new LazyUtf(null, 0, 0, value);
+  }
+
+  static LazyUtf view(byte @NotNull [] bytes, int offset, int length) {
+    return new LazyUtf(bytes, offset, length, null);
+  }
+
+  /**
+   * Returns whether the string has been decoded already.
+   *
+   * @return {@code true} if reading the string is free
+   */
+  public boolean isDecoded() {
+    return this.value != null;
+  }
+
+  /**
+   * Returns the number of bytes this string takes on the wire, including its length prefix.
+   *
+   * @return the encoded size in bytes
+   */
+  public int getEncodedSize() {
+    return this.bytes != null
+        ? MessageSizes.varInt(this.length) + this.length
+        : MessageSizes.utf(this.value);
+  }
+
+  /**
+   * Returns the string, decoding it on first access.
+   *
+   * @return the decoded string
+   */
+  @NotNull
+  @Override
+  public String toString() {
+    String value = this.value;
+    if (value == null) {
+      // Racing threads decode equal strings; either result may be kept.
+      value = new String(this.bytes, this.offset, this.length, StandardCharsets.UTF_8);
+      this.value = value;
+    }
+    return value;
+  }
+}
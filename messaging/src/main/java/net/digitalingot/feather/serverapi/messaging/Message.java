@@ -1,7 +1,39 @@
 package net.digitalingot.feather.serverapi.messaging;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 public interface Message<T extends MessageHandler> {
   void write(MessageWriter writer);
 
+  /**
+   * Returns the exact number of bytes {@link #write(MessageWriter)} produces for this message,
+   * excluding the message id.
+   *
+   * @return the encoded size in bytes
+   */
+  int getEncodedSize();
+
   void handle(T handler);
+
+  /**
+   * Returns the client state this message overwrites, for messages whose latest value wins. Of two
+   * messages queued for the same recipient with equal keys, only the later one is sent.
+   *
+   * @return the key of the overwritten state, or {@code null} if the message must always be sent
+   */
+  @Nullable
+  default Object getCoalescingKey() {
+    return null;
+  }
+
+  /**
+   * Returns the lane this message is sent in when it is client-bound.
+   *
+   * @return the priority of the message
+   */
+  @NotNull
+  default MessagePriority getPriority() {
+    return MessagePriority.NORMAL;
+  }
 }
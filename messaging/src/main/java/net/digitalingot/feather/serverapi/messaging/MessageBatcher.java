@@ -0,0 +1,429 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CBatch;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Queues client-bound messages per recipient until the next {@link #flush(Sink)}, which frames
+ * them and packs consecutive single-frame messages of the same {@link MessagePriority} into {@link
+ * S2CBatch} frames sent at that priority. A burst of small messages sent within one tick therefore
+ * goes out as a few frames instead of one frame per message.
+ *
+ * <p>Messages are only encoded when flushed. A queued message whose {@link
+ * Message#getCoalescingKey() coalescing key} equals that of a message queued later for the same
+ * recipient is dropped without ever being encoded, since the client would overwrite it right away.
+ * A message queued for several recipients is encoded once per flush.
+ *
+ * <p>Fragmented messages are never batched; they end the current batch and are sent as they are,
+ * so every recipient receives its messages in the order they were queued. Only batch messages for
+ * recipients that negotiated {@link MessageCapabilities#BATCHING}; messages queued without
+ * batching are still coalesced and framed on flush, but sent one frame each.
+ *
+ * <p>The messages held for a recipient count against the capacity of the {@link MessageLanes} the
+ * flushed messages are sent to, so the {@link MessageOverflowPolicy} applies as they are queued
+ * rather than only once they are flushed.
+ *
+ * <p>Messages too large to be sent are rejected when queued. A message that fails to be framed on
+ * flush anyway is reported to the {@link FailureHandler} and skipped; the other messages of the
+ * flush are sent regardless.
+ *
+ * @param <K> the recipient, usually the platform player
+ */
+public class MessageBatcher<K> {
+  private static final int BATCH_ID = Messages.CLIENT_BOUND.getId(S2CBatch.class);
+  private static final int BATCH_ID_SIZE = MessageSizes.varInt(BATCH_ID);
+
+  private final int maxFrameSize;
+  @NotNull private final MessageCompressor compressor;
+  @NotNull private final MessageLanes<K> lanes;
+  @NotNull private final FailureHandler<K> failureHandler;
+  private final Map<K, Queue> queues = new ConcurrentHashMap<>();
+  private final LongAdder coalescedMessages = new LongAdder();
+
+  /**
+   * @param maxFrameSize the largest payload the transport accepts in a single frame, unless a
+   *     larger one is given when queueing
+   * @param compressor the compressor applied to messages queued with compression
+   * @param lanes the lanes the flushed messages are sent to
+   * @param failureHandler receives the messages that failed to be framed on flush
+   */
+  public MessageBatcher(
+      int maxFrameSize,
+      @NotNull MessageCompressor compressor,
+      @NotNull MessageLanes<K> lanes,
+      @NotNull FailureHandler<K> failureHandler) {
+    this.maxFrameSize = maxFrameSize;
+    this.compressor = compressor;
+    this.lanes = lanes;
+    this.failureHandler = failureHandler;
+  }
+
+  /**
+   * Queues {@code message} for {@code recipient} until the next flush, replacing any queued message
+   * with the same coalescing key.
+   *
+   * @param recipient the recipient of the message
+   * @param message the client-bound message
+   * @param compress whether the recipient negotiated {@link MessageCapabilities#COMPRESSION}
+   * @return the number of messages dropped to make room, including {@code message} if it was
+   */
+  public int enqueue(@NotNull K recipient, @NotNull Message<?> message, boolean compress) {
+    return enqueue(recipient, message, compress, this.maxFrameSize);
+  }
+
+  /**
+   * Like {@link #enqueue(Object, Message, boolean)}, for a recipient that negotiated its own frame
+   * size.
+   *
+   * @param recipient the recipient of the message
+   * @param message the client-bound message
+   * @param compress whether the recipient negotiated {@link MessageCapabilities#COMPRESSION}
+   * @param maxFrameSize the largest frame the recipient accepts
+   * @return the number of messages dropped to make room, including {@code message} if it was
+   */
+  public int enqueue(
+      @NotNull K recipient, @NotNull Message<?> message, boolean compress, int maxFrameSize) {
+    return enqueue(recipient, message, compress, maxFrameSize, true);
+  }
+
+  /**
+   * Like {@link #enqueue(Object, Message, boolean, int)}, optionally without packing the message
+   * into a batch.
+   *
+   * @param recipient the recipient of the message
+   * @param message the client-bound message
+   * @param compress whether the recipient negotiated {@link MessageCapabilities#COMPRESSION}
+   * @param maxFrameSize the largest frame the recipient accepts
+   * @param batch whether the recipient negotiated {@link MessageCapabilities#BATCHING}
+   * @return the number of messages dropped to make room, including {@code message} if it was
+   * @throws IllegalArgumentException if the message is too large to be sent
+   */
+  public int enqueue(
+      @NotNull K recipient,
+      @NotNull Message<?> message,
+      boolean compress,
+      int maxFrameSize,
+      boolean batch) {
+    // Checked now, since the sender would never hear of a failure on flush.
+    int size = MessageEncoder.CLIENT_BOUND.getEncodedSize(message);
+    MessageFragmenter.checkSize(size);
+    return enqueue(recipient, new Entry(message, null, size, compress, maxFrameSize, batch));
+  }
+
+  /**
+   * Like {@link #enqueue(Object, Message, boolean)}, but sends the frames of {@code message}
+   * instead of framing it again.
+   *
+   * @param recipient the recipient of the message
+   * @param message the prepared message
+   * @param compress whether the recipient negotiated {@link MessageCapabilities#COMPRESSION}
+   * @return the number of messages dropped to make room, including {@code message} if it was
+   */
+  public int enqueue(@NotNull K recipient, @NotNull PreparedMessage message, boolean compress) {
+    return enqueue(recipient, message, compress, this.maxFrameSize);
+  }
+
+  /**
+   * Like {@link #enqueue(Object, PreparedMessage, boolean)}, for a recipient that negotiated its
+   * own frame size.
+   *
+   * @param recipient the recipient of the message
+   * @param message the prepared message
+   * @param compress whether the recipient negotiated {@link MessageCapabilities#COMPRESSION}
+   * @param maxFrameSize the largest frame the recipient accepts
+   * @return the number of messages dropped to make room, including {@code message} if it was
+   */
+  public int enqueue(
+      @NotNull K recipient, @NotNull PreparedMessage message, boolean compress, int maxFrameSize) {
+    return enqueue(recipient, message, compress, maxFrameSize, true);
+  }
+
+  /**
+   * Like {@link #enqueue(Object, PreparedMessage, boolean, int)}, optionally without packing the
+   * message into a batch.
+   *
+   * @param recipient the recipient of the message
+   * @param message the prepared message
+   * @param compress whether the recipient negotiated {@link MessageCapabilities#COMPRESSION}
+   * @param maxFrameSize the largest frame the recipient accepts
+   * @param batch whether the recipient negotiated {@link MessageCapabilities#BATCHING}
+   * @return the number of messages dropped to make room, including {@code message} if it was
+   */
+  public int enqueue(
+      @NotNull K recipient,
+      @NotNull PreparedMessage message,
+      boolean compress,
+      int maxFrameSize,
+      boolean batch) {
+    return enqueue(
+        recipient,
+        new Entry(
+            message.getMessage(),
+            message,
+            message.getEncodedSize(),
+            compress,
+            maxFrameSize,
+            batch));
+  }
+
+  private int enqueue(K recipient, Entry entry) {
+    Object key = entry.message.getCoalescingKey();
+    int[] dropped = new int[1];
+    this.queues.compute(
+        recipient,
+        (ignored, queue) -> {
+          dropped[0] =
+              this.lanes.reserve(
+                  recipient,
+                  entry.message.getPriority(),
+                  entry.size,
+                  queue == null ? 0 : queue.bytes);
+          if (dropped[0] < 0) {
+            dropped[0] = 1;
+            return queue;
+          }
+          if (queue == null) {
+            queue = new Queue();
+          }
+          if (queue.add(entry, key)) {
+            this.coalescedMessages.increment();
+          }
+          return queue;
+        });
+    return dropped[0];
+  }
+
+  /**
+   * Sends everything queued so far. Messages queued concurrently are either sent now or by the
+   * next flush.
+   *
+   * @param sink receives the messages of every recipient, in order
+   */
+  public void flush(@NotNull Sink<K> sink) {
+    Framer framer = new Framer();
+    for (K recipient : this.queues.keySet()) {
+      Queue queue = this.queues.remove(recipient);
+      if (queue != null) {
+        send(recipient, queue, framer, sink);
+      }
+    }
+  }
+
+  /**
+   * Returns whether nothing is queued, so that a flush would not send anything.
+   *
+   * @return {@code true} if no recipient has queued messages
+   */
+  public boolean isEmpty() {
+    return this.queues.isEmpty();
+  }
+
+  /**
+   * Drops everything queued for {@code recipient}, e.g. once it disconnected.
+   *
+   * @param recipient the recipient whose messages to drop
+   */
+  public void remove(@NotNull K recipient) {
+    this.queues.remove(recipient);
+  }
+
+  /**
+   * Returns how many queued messages were dropped because a later message overwrote them.
+   *
+   * @return the number of coalesced messages
+   */
+  public long getCoalescedMessages() {
+    return this.coalescedMessages.sum();
+  }
+
+  private void send(K recipient, Queue queue, Framer framer, Sink<K> sink) {
+    List<FramedMessage> batch = new ArrayList<>();
+    int batchSize = 0;
+    MessagePriority batchPriority = MessagePriority.NORMAL;
+
+    for (Entry entry : queue.entries) {
+      if (entry.superseded) {
+        continue;
+      }
+
+      FramedMessage message;
+      try {
+        message = framer.frame(entry);
+      } catch (RuntimeException exception) {
+        this.failureHandler.fail(recipient, entry.message, exception);
+        continue;
+      }
+      MessagePriority priority = entry.message.getPriority();
+      if (entry.batch && !message.isFragmented()) {
+        int length = message.getSize();
+        int entrySize = MessageSizes.varInt(length) + length;
+        // A batch travels in the lane of its messages, so it only holds one priority.
+        if (priority == batchPriority
+            && fits(batch.size() + 1, batchSize + entrySize, entry.maxFrameSize)) {
+          batch.add(message);
+          batchSize += entrySize;
+          continue;
+        }
+        sendBatch(recipient, batch, batchSize, batchPriority, sink);
+        batch.clear();
+        batchSize = 0;
+        if (fits(1, entrySize, entry.maxFrameSize)) {
+          batch.add(message);
+          batchSize = entrySize;
+          batchPriority = priority;
+          continue;
+        }
+      } else {
+        sendBatch(recipient, batch, batchSize, batchPriority, sink);
+        batch.clear();
+        batchSize = 0;
+      }
+
+      sink.send(recipient, message, priority);
+    }
+
+    sendBatch(recipient, batch, batchSize, batchPriority, sink);
+  }
+
+  private static boolean fits(int count, int size, int maxFrameSize) {
+    return BATCH_ID_SIZE + MessageSizes.varInt(count) + size <= maxFrameSize;
+  }
+
+  private static <K> void sendBatch(
+      K recipient, List<FramedMessage> batch, int size, MessagePriority priority, Sink<K> sink) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    if (batch.size() == 1) {
+      sink.send(recipient, batch.get(0), priority);
+      return;
+    }
+
+    byte[] frame = new byte[BATCH_ID_SIZE + MessageSizes.varInt(batch.size()) + size];
+    // Both write through the same buffer, which is sized exactly and so never replaced.
+    ByteBuffer target = ByteBuffer.wrap(frame);
+    SimpleMessageBuffer buffer = new SimpleMessageBuffer(target);
+    buffer.writeVarInt(BATCH_ID).writeVarInt(batch.size());
+    for (FramedMessage message : batch) {
+      buffer.writeVarInt(message.getSize());
+      target.put(message.getSharedFrame(0));
+    }
+    sink.send(recipient, FramedMessage.single(frame), priority);
+  }
+
+  /**
+   * Frames every distinct message at most once per flush, compression setting and frame size.
+   * Prepared messages are framed already.
+   */
+  private final class Framer {
+    // Keyed by frame size and compression, then by message identity.
+    private final Map<Integer, Map<Message<?>, FramedMessage>> variants = new HashMap<>();
+
+    private FramedMessage frame(Entry entry) {
+      if (entry.prepared != null) {
+        return entry.prepared.getFrames(entry.compress, entry.maxFrameSize);
+      }
+      Map<Message<?>, FramedMessage> framed =
+          this.variants.computeIfAbsent(
+              entry.maxFrameSize << 1 | (entry.compress ? 1 : 0),
+              ignored -> new IdentityHashMap<>());
+      FramedMessage message = framed.get(entry.message);
+      if (message == null) {
+        message =
+            MessageFragmenter.CLIENT_BOUND.frame(
+                entry.message,
+                entry.maxFrameSize,
+                entry.compress ? MessageBatcher.this.compressor : null);
+        framed.put(entry.message, message);
+      }
+      return message;
+    }
+  }
+
+  /** The messages queued for one recipient. Only accessed while holding its map entry. */
+  private static final class Queue {
+    private final List<Entry> entries = new ArrayList<>();
+    private Map<Object, Entry> latest;
+    // The encoded size of the entries not superseded.
+    private long bytes;
+
+    /** Returns whether {@code entry} superseded a queued entry. */
+    private boolean add(Entry entry, @Nullable Object key) {
+      this.entries.add(entry);
+      this.bytes += entry.size;
+      if (key == null) {
+        return false;
+      }
+      if (this.latest == null) {
+        this.latest = new HashMap<>();
+      }
+      Entry previous = this.latest.put(key, entry);
+      if (previous == null) {
+        return false;
+      }
+      previous.superseded = true;
+      this.bytes -= previous.size;
+      return true;
+    }
+  }
+
+  private static final class Entry {
+    private final Message<?> message;
+    @Nullable private final PreparedMessage prepared;
+    private final int size;
+    private final boolean compress;
+    private final int maxFrameSize;
+    private final boolean batch;
+    private boolean superseded;
+
+    private Entry(
+        Message<?> message,
+        @Nullable PreparedMessage prepared,
+        int size,
+        boolean compress,
+        int maxFrameSize,
+        boolean batch) {
+      this.message = message;
+      this.prepared = prepared;
+      this.size = size;
+      this.compress = compress;
+      this.maxFrameSize = maxFrameSize;
+      this.batch = batch;
+    }
+  }
+
+  /** Receives the messages a flush failed to frame. */
+  @FunctionalInterface
+  public interface FailureHandler<K> {
+    /**
+     * Reports a queued message that was skipped because framing it failed.
+     *
+     * @param recipient the recipient of the message
+     * @param message the message that was skipped
+     * @param exception the failure
+     */
+    void fail(K recipient, Message<?> message, RuntimeException exception);
+  }
+
+  /** Receives the messages produced by a flush. */
+  @FunctionalInterface
+  public interface Sink<K> {
+    /**
+     * Sends a framed message, either a batch or a message that could not be batched.
+     *
+     * @param recipient the recipient of the message
+     * @param message the framed message
+     * @param priority the priority of the message; a batch only holds messages of one priority
+     */
+    void send(K recipient, FramedMessage message, MessagePriority priority);
+  }
+}
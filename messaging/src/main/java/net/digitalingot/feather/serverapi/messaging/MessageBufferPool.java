@@ -0,0 +1,119 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Thread-local pool of heap {@link ByteBuffer}s used while encoding messages.
+ *
+ * <p>Buffers are bucketed into power-of-two size classes ranging from {@link #MIN_CAPACITY} up to
+ * {@link #MAX_CAPACITY}. Every thread keeps at most one idle buffer per size class, so borrowing
+ * and returning never contends with other threads, and a thread never pins more than about twice
+ * the largest class. Requests exceeding the largest size class are served with a one-off
+ * allocation of the exact size.
+ */
+public final class MessageBufferPool {
+  public static final MessageBufferPool SHARED = new MessageBufferPool();
+
+  public static final int MIN_CAPACITY = 1 << 8;
+  // Frames never exceed the largest negotiable frame size, so this covers every frame buffer.
+  public static final int MAX_CAPACITY = 1 << 20;
+
+  private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CAPACITY);
+  private static final int MAX_SHIFT = Integer.numberOfTrailingZeros(MAX_CAPACITY);
+  private static final int SIZE_CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+
+  private final ThreadLocal<ByteBuffer[]> idle =
+      ThreadLocal.withInitial(() -> new ByteBuffer[SIZE_CLASSES]);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private static int sizeClass(int capacity) {
+    if (capacity <= MIN_CAPACITY) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+  }
+
+  /**
+   * Returns the capacity of the buffer {@link #acquire(int)} hands out for {@code minCapacity}.
+   *
+   * @param minCapacity the minimum capacity required
+   * @return the capacity of the buffer, rounded up to its size class
+   */
+  public static int getCapacity(int minCapacity) {
+    int sizeClass = sizeClass(minCapacity);
+    return sizeClass < SIZE_CLASSES ? 1 << (sizeClass + MIN_SHIFT) : minCapacity;
+  }
+
+  /**
+   * Borrows a cleared buffer with at least {@code minCapacity} bytes of capacity. The buffer should
+   * be handed back through {@link #release(ByteBuffer)} once it is no longer referenced.
+   *
+   * @param minCapacity the minimum capacity required
+   * @return a cleared heap buffer
+   */
+  @NotNull
+  public ByteBuffer acquire(int minCapacity) {
+    int sizeClass = sizeClass(minCapacity);
+    if (sizeClass >= SIZE_CLASSES) {
+      this.misses.increment();
+      return ByteBuffer.allocate(minCapacity);
+    }
+    ByteBuffer[] buffers = this.idle.get();
+    ByteBuffer buffer = buffers[sizeClass];
+    if (buffer != null) {
+      buffers[sizeClass] = null;
+      this.hits.increment();
+      buffer.clear();
+      return buffer;
+    }
+    this.misses.increment();
+    return ByteBuffer.allocate(1 << (sizeClass + MIN_SHIFT));
+  }
+
+  /**
+   * Returns a buffer previously obtained from {@link #acquire(int)} to the calling thread's pool.
+   * Buffers not matching a size class are silently dropped.
+   *
+   * @param buffer the buffer to return
+   */
+  public void release(@NotNull ByteBuffer buffer) {
+    int capacity = buffer.capacity();
+    if (buffer.isDirect() || Integer.bitCount(capacity) != 1 || capacity < MIN_CAPACITY) {
+      return;
+    }
+    int sizeClass = sizeClass(capacity);
+    if (sizeClass >= SIZE_CLASSES) {
+      return;
+    }
+    ByteBuffer[] buffers = this.idle.get();
+    if (buffers[sizeClass] == null) {
+      buffers[sizeClass] = buffer;
+    }
+  }
+
+  /**
+   * Returns the number of acquisitions served from an idle pooled buffer.
+   *
+   * @return the hit count
+   */
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  /**
+   * Returns the number of acquisitions that required a fresh allocation.
+   *
+   * @return the miss count
+   */
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "MessageBufferPool{hits=" + getHits() + ", misses=" + getMisses() + '}';
+  }
+}
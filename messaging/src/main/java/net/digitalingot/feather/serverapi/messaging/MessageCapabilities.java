@@ -0,0 +1,76 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+/**
+ * Optional wire features, exchanged as a bit set during the handshake. The client advertises what
+ * it supports in {@code C2SHandshake} and the server answers with the subset it enables in {@code
+ * S2CHandshake}. Features are only used once both sides agreed on them.
+ */
+public final class MessageCapabilities {
+  public static final int NONE = 0;
+
+  /** Large client-bound messages may be sent deflated, wrapped in {@code S2CCompressed}. */
+  public static final int COMPRESSION = 1;
+
+  /** Several small client-bound messages may be sent in one frame, wrapped in {@code S2CBatch}. */
+  public static final int BATCHING = 1 << 1;
+
+  /** Frame names and RPC paths from the client may be interned, see {@link MessageStringTable}. */
+  public static final int STRING_TABLE = 1 << 2;
+
+  /**
+   * Client-bound fragmented frames start with the id of their transfer, so that several transfers
+   * may be in flight at once, see {@link MessageLanes}.
+   */
+  public static final int TRANSFER_IDS = 1 << 3;
+
+  /** Every feature this version of the protocol implements. */
+  public static final int SUPPORTED = COMPRESSION | BATCHING | STRING_TABLE | TRANSFER_IDS;
+
+  private MessageCapabilities() {
+    throw new AssertionError();
+  }
+
+  public static boolean has(int capabilities, int capability) {
+    return (capabilities & capability) == capability;
+  }
+
+  /**
+   * Returns the features the server agrees to use out of those {@code offered} by a client.
+   * Individual features can be turned off with the {@code <name>.enabled} {@link MessagingOptions}.
+   */
+  public static int negotiate(int offered) {
+    int enabled = SUPPORTED;
+    if (!MessagingOptions.getBoolean("compression.enabled", true)) {
+      enabled &= ~COMPRESSION;
+    }
+    if (!MessagingOptions.getBoolean("batching.enabled", true)) {
+      enabled &= ~BATCHING;
+    }
+    if (!MessagingOptions.getBoolean("string-table.enabled", true)) {
+      enabled &= ~STRING_TABLE;
+    }
+    if (!MessagingOptions.getBoolean("transfer-ids.enabled", true)) {
+      enabled &= ~TRANSFER_IDS;
+    }
+    return offered & enabled;
+  }
+
+  /**
+   * Returns the largest client-bound frame the server sends to a client that accepts frames of up
+   * to {@code offered} bytes, {@code 0} meaning it did not say. The result lies between the frame
+   * size every client of the platform accepts and what the platform can send at most, further
+   * capped by the {@code frame-size.max} {@link MessagingOptions}. Anything above the legacy size
+   * is rounded down to a power of two, so that the frame sizes in use, and with them the variants
+   * a {@link PreparedMessage} caches, stay few whatever clients offer.
+   *
+   * @param offered the frame size advertised in {@code C2SHandshake}
+   * @param legacyFrameSize the frame size every client accepts
+   * @param maxFrameSize the largest frame the platform can send
+   * @return the negotiated frame size
+   */
+  public static int negotiateFrameSize(int offered, int legacyFrameSize, int maxFrameSize) {
+    int limit = Math.min(maxFrameSize, MessagingOptions.getInt("frame-size.max", maxFrameSize));
+    int frameSize = Integer.highestOneBit(Math.min(offered, limit));
+    return Math.max(legacyFrameSize, frameSize);
+  }
+}
@@ -0,0 +1,239 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import net.digitalingot.feather.serverapi.messaging.exception.MessageException;
+import net.digitalingot.feather.serverapi.messaging.exception.OverflowException;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CCompressed;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Deflates encoded client-bound messages into {@link S2CCompressed} wrappers and inflates them
+ * again. Every thread reuses a single {@link Deflater} and {@link Inflater}.
+ *
+ * <p>Only messages of at least {@link #getThreshold()} encoded bytes are compressed, and only if
+ * that makes them smaller. Per message type {@link Statistics} record what compression saved.
+ */
+public final class MessageCompressor {
+  public static final int DEFAULT_THRESHOLD = 1024;
+
+  public static final MessageCompressor SHARED =
+      new MessageCompressor(
+          MessagingOptions.getInt("compression.threshold", DEFAULT_THRESHOLD),
+          MessagingOptions.getInt("compression.level", Deflater.DEFAULT_COMPRESSION));
+
+  private final int threshold;
+  private final ThreadLocal<Deflater> deflaters;
+  private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+  // Deflate output, kept apart from the pool whose buffer of the same size holds the input.
+  private final ThreadLocal<byte[]> outputs = new ThreadLocal<>();
+  private final Map<Class<?>, Statistics> statistics = new ConcurrentHashMap<>();
+
+  public MessageCompressor(int threshold, int level) {
+    this.threshold = threshold;
+    this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+  }
+
+  public int getThreshold() {
+    return this.threshold;
+  }
+
+  /**
+   * Returns whether a message of {@code encodedSize} bytes, including its id, is large enough to
+   * be worth compressing.
+   */
+  public boolean shouldCompress(int encodedSize) {
+    return encodedSize >= this.threshold;
+  }
+
+  /**
+   * Compresses an encoded client-bound message into an encoded {@link S2CCompressed} message.
+   *
+   * @param type the type of the encoded message, for the statistics
+   * @param encoded the encoded message between its position and limit; the position is untouched
+   * @return the encoded wrapper, or {@code null} if the message is below the threshold or does not
+   *     shrink
+   */
+  @Nullable
+  byte[] compress(@NotNull Class<?> type, @NotNull ByteBuffer encoded) {
+    int length = encoded.remaining();
+    if (!shouldCompress(length)) {
+      return null;
+    }
+
+    Deflater deflater = this.deflaters.get();
+    deflater.reset();
+    deflater.setInput(encoded.array(), encoded.arrayOffset() + encoded.position(), length);
+    deflater.finish();
+
+    // Output that does not fit in the uncompressed length is not worth sending.
+    byte[] output = getOutput(length);
+    int compressed = 0;
+    while (!deflater.finished() && compressed < length) {
+      compressed += deflater.deflate(output, compressed, length - compressed);
+    }
+
+    int id = Messages.CLIENT_BOUND.getId(S2CCompressed.class);
+    int wrapped =
+        MessageSizes.varInt(id) + MessageSizes.varInt(length) + MessageSizes.varInt(compressed);
+    if (!deflater.finished() || wrapped + compressed >= length) {
+      record(type, length, length);
+      return null;
+    }
+
+    byte[] result = new byte[wrapped + compressed];
+    SimpleMessageBuffer.of(result).writeVarInt(id).writeVarInt(length).writeVarInt(compressed);
+    System.arraycopy(output, 0, result, wrapped, compressed);
+    record(type, length, result.length);
+    return result;
+  }
+
+  private byte[] getOutput(int length) {
+    // Outputs beyond the largest pooled buffer are not worth keeping around per thread.
+    if (length > MessageBufferPool.MAX_CAPACITY) {
+      return new byte[length];
+    }
+    byte[] output = this.outputs.get();
+    if (output == null || output.length < length) {
+      output = new byte[MessageBufferPool.getCapacity(length)];
+      this.outputs.set(output);
+    }
+    return output;
+  }
+
+  /**
+   * Inflates the payload of an {@link S2CCompressed} message.
+   *
+   * @param data the deflated message
+   * @param length the length of the inflated message
+   * @return the inflated message
+   * @throws MessageException if {@code data} is malformed or does not inflate to {@code length}
+   */
+  public byte[] decompress(byte @NotNull [] data, int length) {
+    if (length > MessageFragmentationConstants.MAX_SIZE) {
+      throw new OverflowException(
+          "Compressed message", length, MessageFragmentationConstants.MAX_SIZE);
+    } else if (length < 0) {
+      throw new MessageException("Negative message size (" + length + ")");
+    }
+
+    Inflater inflater = this.inflaters.get();
+    inflater.reset();
+    inflater.setInput(data);
+
+    byte[] result = new byte[length];
+    int inflated = 0;
+    try {
+      while (inflated < length) {
+        int count = inflater.inflate(result, inflated, length - inflated);
+        // Finished early, truncated, or waiting for a dictionary: malformed either way.
+        if (count == 0) {
+          break;
+        }
+        inflated += count;
+      }
+    } catch (DataFormatException exception) {
+      throw new MessageException("Malformed compressed message", exception);
+    }
+
+    if (inflated != length || !inflater.finished()) {
+      throw new MessageException("Compressed message does not match its length (" + length + ")");
+    }
+    return result;
+  }
+
+  private void record(Class<?> type, int uncompressed, int compressed) {
+    Statistics statistics = this.statistics.get(type);
+    if (statistics == null) {
+      statistics = this.statistics.computeIfAbsent(type, ignored -> new Statistics());
+    }
+    statistics.messages.increment();
+    statistics.uncompressedBytes.add(uncompressed);
+    statistics.compressedBytes.add(compressed);
+  }
+
+  /**
+   * Returns the statistics of every message type that reached the compression threshold so far.
+   *
+   * @return a live, unmodifiable view keyed by message class
+   */
+  @NotNull
+  public Map<Class<?>, Statistics> getStatistics() {
+    return Collections.unmodifiableMap(this.statistics);
+  }
+
+  @Override
+  public String toString() {
+    return "MessageCompressor{threshold="
+        + this.threshold
+        + ", statistics="
+        + this.statistics
+        + '}';
+  }
+
+  /** Compression results of a single message type. */
+  public static final class Statistics {
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+
+    private Statistics() {}
+
+    /**
+     * Returns the number of messages that reached the compression threshold.
+     *
+     * @return the message count
+     */
+    public long getMessages() {
+      return this.messages.sum();
+    }
+
+    /**
+     * Returns the encoded size of those messages before compression.
+     *
+     * @return the uncompressed byte count
+     */
+    public long getUncompressedBytes() {
+      return this.uncompressedBytes.sum();
+    }
+
+    /**
+     * Returns the number of bytes actually sent for those messages. Messages that did not shrink
+     * were sent uncompressed and count with their uncompressed size.
+     *
+     * @return the compressed byte count
+     */
+    public long getCompressedBytes() {
+      return this.compressedBytes.sum();
+    }
+
+    /**
+     * Returns the compressed size relative to the uncompressed size, e.g. {@code 0.25} if
+     * compression saved three quarters of the bytes.
+     *
+     * @return the compression ratio, or {@code 1} if nothing was compressed yet
+     */
+    public double getRatio() {
+      long uncompressed = getUncompressedBytes();
+      return uncompressed != 0 ? (double) getCompressedBytes() / uncompressed : 1;
+    }
+
+    @Override
+    public String toString() {
+      return "Statistics{messages="
+          + getMessages()
+          + ", uncompressedBytes="
+          + getUncompressedBytes()
+          + ", compressedBytes="
+          + getCompressedBytes()
+          + '}';
+    }
+  }
+}
@@ -1,5 +1,11 @@
 package net.digitalingot.feather.serverapi.messaging;
 
+import java.nio.ByteBuffer;
+import net.digitalingot.feather.serverapi.messaging.exception.MessageException;
+import net.digitalingot.feather.serverapi.messaging.messages.client.S2CCompressed;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 public class MessageDecoder<T extends MessageHandler> {
   public static final MessageDecoder<ServerMessageHandler> SERVER_BOUND =
       new MessageDecoder<>(Messages.SERVER_BOUND);
@@ -7,15 +13,75 @@ public class MessageDecoder<T extends MessageHandler> {
       new MessageDecoder<>(Messages.CLIENT_BOUND);
 
   private final Messages messages;
+  @Nullable private final MessageStringTable stringTable;
 
   private MessageDecoder(Messages messages) {
+    this(messages, null);
+  }
+
+  private MessageDecoder(Messages messages, @Nullable MessageStringTable stringTable) {
     this.messages = messages;
+    this.stringTable = stringTable;
   }
 
+  /**
+   * Returns a decoder for a single connection that negotiated {@link
+   * MessageCapabilities#STRING_TABLE}, resolving interned strings against {@code stringTable}.
+   *
+   * @param stringTable the string table of the connection
+   * @return the decoder for the connection
+   */
+  @NotNull
+  public MessageDecoder<T> withStringTable(@NotNull MessageStringTable stringTable) {
+    return new MessageDecoder<>(this.messages, stringTable);
+  }
+
+  /**
+   * Decodes {@code message}. {@link LazyUtf} fields of the result reference {@code message}, which
+   * must therefore not be modified afterwards.
+   */
   public Message<T> decode(byte[] message) {
-    SimpleMessageBuffer buffer = SimpleMessageBuffer.of(message);
+    return decode(SimpleMessageBuffer.of(message));
+  }
+
+  /**
+   * Decodes the message held between the position and limit of {@code message}, reading straight
+   * from its storage. The storage may be reused afterwards; {@link LazyUtf} fields copy their
+   * bytes out of it.
+   */
+  public Message<T> decode(ByteBuffer message) {
+    return decode(new SimpleMessageBuffer(message.slice()).borrowed());
+  }
+
+  /**
+   * Reads only the id of an encoded message, e.g. to reject unexpected messages without decoding
+   * their body.
+   *
+   * @param message the encoded message
+   * @return the message id
+   */
+  public int peekId(byte[] message) {
+    return SimpleMessageBuffer.of(message).readVarInt();
+  }
+
+  private Message<T> decode(SimpleMessageBuffer buffer) {
+    Message<?> message = create(buffer);
+    if (message instanceof S2CCompressed) {
+      message = create(SimpleMessageBuffer.of(((S2CCompressed) message).decompress()));
+      if (message instanceof S2CCompressed) {
+        throw new MessageException("Nested compressed message");
+      }
+    }
+    return (Message<T>) message;
+  }
+
+  private Message<?> create(SimpleMessageBuffer buffer) {
+    buffer.withStringTable(this.stringTable);
     int messageId = buffer.readVarInt();
-    // TODO: error handling
-    return (Message<T>) this.messages.createMessage(messageId, buffer);
+    Message<?> message = this.messages.createMessage(messageId, buffer);
+    if (message == null) {
+      throw new MessageException("Unknown message id " + messageId);
+    }
+    return message;
   }
 }
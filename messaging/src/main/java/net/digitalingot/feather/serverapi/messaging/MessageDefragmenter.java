@@ -1,26 +1,63 @@
 package net.digitalingot.feather.serverapi.messaging;
 
+import java.nio.ByteBuffer;
+import net.digitalingot.feather.serverapi.messaging.exception.MessageException;
+import net.digitalingot.feather.serverapi.messaging.exception.OverflowException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 public class MessageDefragmenter {
   private final short count;
+  private final int size;
   private final byte[] buffer;
+  @Nullable private final MessageBufferPool pool;
+  @Nullable private ByteBuffer pooled;
   private int offset = 0;
   private int expectedFragment = 0;
 
   public MessageDefragmenter(SimpleMessageBuffer buffer) {
-    this.count = buffer.readUnsignedByte();
-    int size = buffer.readVarInt();
+    this(buffer, null);
+  }
+
+  /**
+   * Reads the fragmentation header from {@code buffer} and prepares reassembly storage, borrowed
+   * from {@code pool} if one is given. Pooled storage is handed back by {@link #release()}.
+   */
+  public MessageDefragmenter(SimpleMessageBuffer buffer, @Nullable MessageBufferPool pool) {
+    this(buffer.readUnsignedByte(), readSize(buffer), pool);
+  }
+
+  MessageDefragmenter(short count, int size, @Nullable MessageBufferPool pool) {
+    this.count = count;
+    this.size = size;
+    this.pool = pool;
+    if (pool != null) {
+      this.pooled = pool.acquire(this.size);
+      this.buffer = this.pooled.array();
+    } else {
+      this.buffer = new byte[this.size];
+    }
+  }
+
+  static int readSize(SimpleMessageBuffer header) {
+    int size = header.readVarInt();
     if (size > MessageFragmentationConstants.MAX_SIZE) {
-      throw new RuntimeException("Exceeds size");
+      throw new OverflowException("Message", size, MessageFragmentationConstants.MAX_SIZE);
+    } else if (size < 0) {
+      throw new MessageException("Negative message size (" + size + ")");
     }
-    this.buffer = new byte[size];
+    return size;
   }
 
   public boolean decode(SimpleMessageBuffer buffer) {
     short fragment = buffer.readUnsignedByte();
     if (fragment != this.expectedFragment) {
-      throw new RuntimeException("Unexpected fragment");
+      throw new MessageException("Unexpected fragment");
     }
     int remaining = buffer.remaining();
+    if (remaining > this.size - this.offset) {
+      throw new OverflowException("Fragment", this.offset + remaining, this.size);
+    }
     buffer.readBytes(this.buffer, this.offset, remaining);
     this.offset += remaining;
     this.expectedFragment++;
@@ -31,7 +68,29 @@ public class MessageDefragmenter {
     return this.expectedFragment == this.count;
   }
 
+  /**
+   * Returns the reassembly storage. With pooled storage the array may be larger than the message;
+   * only the first {@link #getSize()} bytes belong to it.
+   */
   public byte[] getBuffer() {
     return this.buffer;
   }
+
+  public int getSize() {
+    return this.size;
+  }
+
+  /** Returns the reassembled message as a buffer over the reassembly storage, without copying. */
+  @NotNull
+  public ByteBuffer getMessage() {
+    return ByteBuffer.wrap(this.buffer, 0, this.offset);
+  }
+
+  /** Hands pooled reassembly storage back. The defragmenter must not be used afterwards. */
+  public void release() {
+    if (this.pool != null && this.pooled != null) {
+      this.pool.release(this.pooled);
+      this.pooled = null;
+    }
+  }
 }
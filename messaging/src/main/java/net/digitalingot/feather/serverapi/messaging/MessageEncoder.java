@@ -1,5 +1,9 @@
 package net.digitalingot.feather.serverapi.messaging;
 
+import java.io.DataOutput;
+import java.nio.ByteBuffer;
+import net.digitalingot.feather.serverapi.messaging.exception.OverflowException;
+import org.jetbrains.annotations.ApiStatus.Internal;
 import org.jetbrains.annotations.NotNull;
 
 public enum MessageEncoder {
@@ -13,11 +17,82 @@ public enum MessageEncoder {
   }
 
   public byte[] encode(@NotNull Message<?> message) {
+    SimpleMessageBuffer buffer = encodePooled(message);
+    try {
+      return buffer.toByteArray();
+    } finally {
+      buffer.release();
+    }
+  }
+
+  /**
+   * Encodes {@code message} straight into {@code target}, starting at its current position. On
+   * return the position has advanced past the encoded message.
+   *
+   * @param message the message to encode
+   * @param target the buffer to write into
+   * @return the number of bytes written
+   * @throws OverflowException if {@code target} has not enough space remaining
+   */
+  public int encode(@NotNull Message<?> message, @NotNull ByteBuffer target) {
+    int size = getEncodedSize(message);
+    if (size > target.remaining()) {
+      throw new OverflowException("Buffer", size, target.remaining());
+    }
+    encode(message, new SimpleMessageBuffer(target));
+    return size;
+  }
+
+  /**
+   * Encodes {@code message} straight into {@code target}, e.g. the output of a transport that
+   * serializes plugin messages into its own buffers.
+   *
+   * @param message the message to encode
+   * @param target the output to write into
+   * @return the number of bytes written
+   * @throws java.io.UncheckedIOException if {@code target} fails to accept the bytes
+   */
+  public int encode(@NotNull Message<?> message, @NotNull DataOutput target) {
+    int size = getEncodedSize(message);
+    encode(message, new DataOutputMessageWriter(target));
+    return size;
+  }
+
+  /** Writes the id and body of {@code message} to {@code writer}. */
+  @Internal
+  void encode(@NotNull Message<?> message, @NotNull MessageWriter writer) {
     // TODO: error handling
     int id = this.messages.getId(message.getClass());
-    SimpleMessageBuffer buffer = new SimpleMessageBuffer();
-    buffer.writeVarInt(id);
-    message.write(buffer);
-    return buffer.toByteArray();
+    writer.writeVarInt(id);
+    this.messages.write(id, message, writer);
+  }
+
+  /**
+   * Returns the exact number of bytes {@link #encode(Message)} produces for {@code message},
+   * without serializing it.
+   *
+   * @param message the message to measure
+   * @return the encoded size in bytes, including the message id
+   */
+  public int getEncodedSize(@NotNull Message<?> message) {
+    int id = this.messages.getId(message.getClass());
+    return MessageSizes.varInt(id) + this.messages.getEncodedSize(id, message);
+  }
+
+  /**
+   * Encodes {@code message} into a buffer borrowed from {@link MessageBufferPool#SHARED}. The
+   * caller owns the returned buffer and must {@link SimpleMessageBuffer#release() release} it.
+   */
+  @Internal
+  SimpleMessageBuffer encodePooled(@NotNull Message<?> message) {
+    int size = getEncodedSize(message);
+    SimpleMessageBuffer buffer = SimpleMessageBuffer.pooled(MessageBufferPool.SHARED, size);
+    try {
+      encode(message, buffer);
+    } catch (RuntimeException exception) {
+      buffer.release();
+      throw exception;
+    }
+    return buffer;
   }
 }
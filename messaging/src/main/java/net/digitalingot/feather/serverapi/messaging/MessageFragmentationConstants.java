@@ -7,7 +7,24 @@ public class MessageFragmentationConstants {
 
   public static final int MAX_SIZE = MAX_FRAGMENTS * FRAGMENT_SIZE;
 
+  /** The frame size every client accepts, used unless a larger one was negotiated. */
+  public static final int LEGACY_FRAME_SIZE = FRAGMENT_SIZE + 1;
+
+  /**
+   * The size of the transfer id prefixing every fragmented frame once {@link
+   * MessageCapabilities#TRANSFER_IDS} was negotiated.
+   */
+  public static final int TRANSFER_ID_SIZE = MessageSizes.BYTE;
+
   private MessageFragmentationConstants() {
     throw new AssertionError();
   }
+
+  /**
+   * Returns the payload size of fragments sent in frames of at most {@code maxFrameSize} bytes,
+   * leaving room for the fragment index.
+   */
+  public static int getFragmentSize(int maxFrameSize) {
+    return maxFrameSize - MessageSizes.BYTE;
+  }
 }
@@ -1,8 +1,11 @@
 package net.digitalingot.feather.serverapi.messaging;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public enum MessageFragmenter {
   SERVER_BOUND(MessageEncoder.SERVER_BOUND),
@@ -15,10 +18,48 @@ public enum MessageFragmenter {
   }
 
   public List<byte[]> fragment(@NotNull Message<?> message) {
-    byte[] data = this.encoder.encode(message);
+    SimpleMessageBuffer encoded = this.encoder.encodePooled(message);
+    try {
+      return fragment(ByteBuffer.wrap(encoded.array(), 0, encoded.position()));
+    } finally {
+      encoded.release();
+    }
+  }
+
+  /**
+   * Splits an already encoded message into the header and its fragments without encoding it again.
+   *
+   * @param encoded the output of {@link MessageEncoder#encode(Message)}
+   * @return the header followed by one array per fragment
+   */
+  public List<byte[]> fragment(byte @NotNull [] encoded) {
+    return fragment(ByteBuffer.wrap(encoded));
+  }
+
+  /**
+   * Splits the remaining bytes of an already encoded message into the header and its fragments
+   * without encoding it again. The position of {@code encoded} is left untouched.
+   *
+   * @param encoded a buffer holding an encoded message between its position and limit
+   * @return the header followed by one array per fragment
+   */
+  public List<byte[]> fragment(@NotNull ByteBuffer encoded) {
+    return fragment(encoded, MessageFragmentationConstants.LEGACY_FRAME_SIZE);
+  }
 
-    int fragmentSize = MessageFragmentationConstants.FRAGMENT_SIZE;
-    int fragments = (int) Math.ceil((double) data.length / fragmentSize);
+  /**
+   * Like {@link #fragment(ByteBuffer)}, but sizes the fragments to fill frames of {@code
+   * maxFrameSize} bytes.
+   *
+   * @param encoded a buffer holding an encoded message between its position and limit
+   * @param maxFrameSize the largest payload the transport accepts in a single frame
+   * @return the header followed by one array per fragment
+   */
+  public List<byte[]> fragment(@NotNull ByteBuffer encoded, int maxFrameSize) {
+    int dataLength = encoded.remaining();
+    checkSize(dataLength);
+    int fragmentSize = MessageFragmentationConstants.getFragmentSize(maxFrameSize);
+    int fragments = (dataLength + fragmentSize - 1) / fragmentSize;
     if (fragments > MessageFragmentationConstants.MAX_FRAGMENTS) {
       throw new IllegalArgumentException("Exceeds size");
     }
@@ -27,18 +68,199 @@ public enum MessageFragmenter {
 
     SimpleMessageBuffer header = new SimpleMessageBuffer();
     header.writeUnsignedByte((short) fragments);
-    header.writeVarInt(data.length);
+    header.writeVarInt(dataLength);
     buffers.add(header.toByteArray());
 
+    ByteBuffer data = encoded.duplicate();
     for (int iii = 0; iii < fragments; ++iii) {
-      int offset = (iii * fragmentSize);
-      int length = Math.min(fragmentSize, data.length - offset);
+      int length = Math.min(fragmentSize, data.remaining());
       byte[] buffer = new byte[length + 1];
       buffer[0] = (byte) iii;
-      System.arraycopy(data, offset, buffer, 1, length);
+      data.get(buffer, 1, length);
       buffers.add(buffer);
     }
 
     return buffers;
   }
+
+  /**
+   * Serializes {@code message} straight into fragment-sized chunks and hands the header and then
+   * every fragment to {@code sink} as soon as it is complete, so no more than one fragment is held
+   * in memory at a time regardless of the message size.
+   *
+   * <p>This only suits frames sent straight away. Frames queued for pacing in {@link MessageLanes}
+   * are pulled one at a time instead, which {@link #frame} arranges for bulk messages.
+   *
+   * @param message the message to fragment
+   * @param sink receives the header followed by every fragment, in sending order
+   */
+  public void stream(@NotNull Message<?> message, @NotNull Consumer<byte[]> sink) {
+    stream(message, MessageFragmentationConstants.LEGACY_FRAME_SIZE, sink);
+  }
+
+  /**
+   * Like {@link #stream(Message, Consumer)}, but sizes the fragments to fill frames of {@code
+   * maxFrameSize} bytes.
+   *
+   * @param message the message to fragment
+   * @param maxFrameSize the largest payload the transport accepts in a single frame
+   * @param sink receives the header followed by every fragment, in sending order
+   */
+  public void stream(
+      @NotNull Message<?> message, int maxFrameSize, @NotNull Consumer<byte[]> sink) {
+    int dataLength = this.encoder.getEncodedSize(message);
+    checkSize(dataLength);
+    int fragmentSize = MessageFragmentationConstants.getFragmentSize(maxFrameSize);
+    int fragments = (dataLength + fragmentSize - 1) / fragmentSize;
+    if (fragments > MessageFragmentationConstants.MAX_FRAGMENTS) {
+      throw new IllegalArgumentException("Exceeds size");
+    }
+
+    byte[] header = new byte[MessageSizes.BYTE + MessageSizes.varInt(dataLength)];
+    SimpleMessageBuffer.of(header).writeUnsignedByte((short) fragments).writeVarInt(dataLength);
+    sink.accept(header);
+
+    StreamingFragmentWriter writer = new StreamingFragmentWriter(dataLength, fragmentSize, sink);
+    this.encoder.encode(message, writer);
+    writer.finish();
+  }
+
+  /**
+   * Checks that a message of {@code encodedSize} bytes can be sent at all. Receivers reject
+   * messages larger than {@link MessageFragmentationConstants#MAX_SIZE}, even when a negotiated
+   * frame size would fit more than that into the maximum number of fragments.
+   *
+   * @param encodedSize the encoded size of the message
+   * @throws IllegalArgumentException if the message is too large
+   */
+  public static void checkSize(int encodedSize) {
+    if (encodedSize > MessageFragmentationConstants.MAX_SIZE) {
+      throw new IllegalArgumentException("Exceeds size");
+    }
+  }
+
+  /**
+   * Frames {@code message} for sending: as a single frame when the encoded message fits within
+   * {@code maxFrameSize}, and as header plus fragments filling frames of that size otherwise.
+   * Fragments are serialized straight into one array and handed out as slices of it.
+   *
+   * <p>Fragmented {@link MessagePriority#BULK} messages are paced out over many flushes, so they
+   * are streamed instead: every fragment is serialized from the message when it is taken for
+   * sending, and only that fragment is held. Each one walks the whole message again, but copies
+   * just its own bytes, which is cheap for the byte array payloads bulk messages carry.
+   *
+   * @param message the message to frame
+   * @param maxFrameSize the largest payload the transport accepts in a single frame
+   * @return the framed message
+   */
+  public FramedMessage frame(@NotNull Message<?> message, int maxFrameSize) {
+    return frame(message, maxFrameSize, null);
+  }
+
+  /**
+   * Like {@link #frame(Message, int)}, but client-bound messages reaching the threshold of {@code
+   * compressor} are framed as an {@code S2CCompressed} wrapper if that makes them smaller. Only
+   * use a compressor for recipients that negotiated {@link MessageCapabilities#COMPRESSION}.
+   *
+   * @param message the message to frame
+   * @param maxFrameSize the largest payload the transport accepts in a single frame
+   * @param compressor the compressor to apply, or {@code null} to send the message as is
+   * @return the framed message
+   */
+  public FramedMessage frame(
+      @NotNull Message<?> message, int maxFrameSize, @Nullable MessageCompressor compressor) {
+    return frame(
+        message, maxFrameSize, compressor, message.getPriority() == MessagePriority.BULK);
+  }
+
+  /**
+   * Like {@link #frame(Message, int, MessageCompressor)}, but only streams fragmented messages if
+   * {@code stream} is set. Messages framed for many recipients should be serialized exactly once.
+   */
+  FramedMessage frame(
+      @NotNull Message<?> message,
+      int maxFrameSize,
+      @Nullable MessageCompressor compressor,
+      boolean stream) {
+    int dataLength = this.encoder.getEncodedSize(message);
+    // Also bounds the inflated size of a compressed message.
+    checkSize(dataLength);
+    if (compressor == null || this != CLIENT_BOUND || !compressor.shouldCompress(dataLength)) {
+      if (dataLength <= maxFrameSize) {
+        byte[] frame = new byte[dataLength];
+        this.encoder.encode(message, ByteBuffer.wrap(frame));
+        return FramedMessage.single(frame);
+      }
+      if (stream) {
+        return stream(message, dataLength, maxFrameSize);
+      }
+      SlicedFragmentWriter writer = newFragmentWriter(dataLength, maxFrameSize);
+      this.encoder.encode(message, writer);
+      return writer.finish();
+    }
+
+    SimpleMessageBuffer encoded = this.encoder.encodePooled(message);
+    try {
+      ByteBuffer data = ByteBuffer.wrap(encoded.array(), 0, encoded.position());
+      byte[] compressed = compressor.compress(message.getClass(), data);
+      if (compressed != null) {
+        if (compressed.length <= maxFrameSize) {
+          return FramedMessage.single(compressed);
+        }
+        data = ByteBuffer.wrap(compressed);
+      }
+      if (data.remaining() <= maxFrameSize) {
+        byte[] frame = new byte[data.remaining()];
+        data.get(frame);
+        return FramedMessage.single(frame);
+      }
+      SlicedFragmentWriter writer = newFragmentWriter(data.remaining(), maxFrameSize);
+      writer.writeBytes(data.array(), data.arrayOffset() + data.position(), data.remaining());
+      return writer.finish();
+    } finally {
+      encoded.release();
+    }
+  }
+
+  private FramedMessage stream(Message<?> message, int dataLength, int maxFrameSize) {
+    int fragmentSize = MessageFragmentationConstants.getFragmentSize(maxFrameSize);
+    int fragments = checkFragments(dataLength, fragmentSize);
+    byte[] header = new byte[MessageSizes.BYTE + MessageSizes.varInt(dataLength)];
+    SimpleMessageBuffer.of(header).writeUnsignedByte((short) fragments).writeVarInt(dataLength);
+
+    // Fail now rather than in the lanes if the message cannot be encoded; keeps none of it.
+    WindowedFragmentWriter check = new WindowedFragmentWriter(new byte[MessageSizes.BYTE], 0);
+    this.encoder.encode(message, check);
+    check.finish(dataLength);
+
+    return FramedMessage.streamed(
+        index -> {
+          if (index == 0) {
+            return ByteBuffer.wrap(header);
+          }
+          int start = (index - 1) * fragmentSize;
+          byte[] fragment = new byte[Math.min(fragmentSize, dataLength - start) + 1];
+          fragment[0] = (byte) (index - 1);
+          WindowedFragmentWriter writer = new WindowedFragmentWriter(fragment, start);
+          this.encoder.encode(message, writer);
+          writer.finish(dataLength);
+          return ByteBuffer.wrap(fragment);
+        },
+        fragments + 1,
+        header.length + fragments + dataLength);
+  }
+
+  private static int checkFragments(int dataLength, int fragmentSize) {
+    int fragments = (dataLength + fragmentSize - 1) / fragmentSize;
+    if (fragments > MessageFragmentationConstants.MAX_FRAGMENTS) {
+      throw new IllegalArgumentException("Exceeds size");
+    }
+    return fragments;
+  }
+
+  private static SlicedFragmentWriter newFragmentWriter(int dataLength, int maxFrameSize) {
+    int fragmentSize = MessageFragmentationConstants.getFragmentSize(maxFrameSize);
+    checkFragments(dataLength, fragmentSize);
+    return new SlicedFragmentWriter(dataLength, fragmentSize);
+  }
 }
@@ -0,0 +1,27 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers a message and assigns its wire id. Server-bound and client-bound messages are numbered
+ * separately, and within each direction ids must be dense, starting at 0.
+ *
+ * <p>The messaging annotation processor checks ids at compile time and generates the dispatch
+ * tables {@link Messages} delegates to, so a duplicate or missing id fails the build instead of
+ * shifting every following message.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface MessageId {
+  /**
+   * The wire id of the annotated message within its direction.
+   *
+   * @return the message id
+   */
+  int value();
+}
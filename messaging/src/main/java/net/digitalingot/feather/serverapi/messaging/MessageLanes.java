@@ -0,0 +1,527 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Schedules the client-bound frames of every recipient over one lane per {@link MessagePriority}.
+ * Messages within a lane are sent in the order they were queued, but no lane waits for a less
+ * urgent one, so an RPC response goes out between two fragments of a background that is still
+ * being transferred.
+ *
+ * <p>Fragments of non-urgent transfers are paced: between two {@link #flush(Sink)} calls at most
+ * the configured number of fragment bytes is sent to each recipient, which keeps the connection
+ * free for whatever is sent next. Single frames and urgent transfers go out as soon as they reach
+ * the head of their lane.
+ *
+ * <p>Fragments of different transfers only interleave for recipients that negotiated {@link
+ * MessageCapabilities#TRANSFER_IDS}; any other recipient receives one transfer after the other.
+ * Single frames travel on their own channel and pass between fragments either way.
+ *
+ * <p>The bytes queued for a recipient are bounded by a capacity. A message that would exceed it is
+ * handled according to the {@link MessageOverflowPolicy}, except that a message is always accepted
+ * by an empty queue, however large it is. Recipients with more than half the capacity queued are
+ * considered {@linkplain #isCongested(Object) congested}. Messages a {@link MessageBatcher} holds
+ * for a recipient until its next flush count against the same capacity.
+ *
+ * @param <K> the recipient, usually the platform player
+ */
+public class MessageLanes<K> {
+  /** Passed to the {@link Sink} for frames that are not prefixed with a transfer id. */
+  public static final int NO_TRANSFER = -1;
+
+  public static final int DEFAULT_BYTES_PER_SECOND = 4 * 1024 * 1024;
+  public static final long DEFAULT_CAPACITY = 8 * 1024 * 1024;
+
+  private static final MessagePriority[] PRIORITIES = MessagePriority.values();
+  private static final int MAX_TRANSFER_ID = 0xFF;
+  private static final long BLOCK_TIMEOUT_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(
+          MessagingOptions.getLong("lanes.block-timeout", TimeUnit.SECONDS.toMillis(5)));
+
+  private final int bytesPerFlush;
+  private final long capacity;
+  @NotNull private final MessageOverflowPolicy overflowPolicy;
+  private final Map<K, Lanes> recipients = new ConcurrentHashMap<>();
+
+  /**
+   * Creates lanes bounded by the {@code lanes.capacity} and {@code lanes.overflow} {@link
+   * MessagingOptions}.
+   *
+   * @param bytesPerFlush the fragment bytes sent to a recipient between two flushes, except for
+   *     urgent transfers
+   */
+  public MessageLanes(int bytesPerFlush) {
+    this(
+        bytesPerFlush,
+        MessagingOptions.getLong("lanes.capacity", DEFAULT_CAPACITY),
+        MessagingOptions.getEnum("lanes.overflow", MessageOverflowPolicy.DROP_BY_PRIORITY));
+  }
+
+  /**
+   * @param bytesPerFlush the fragment bytes sent to a recipient between two flushes, except for
+   *     urgent transfers
+   * @param capacity the bytes that may be queued for a single recipient
+   * @param overflowPolicy what to do with messages that would exceed the capacity
+   */
+  public MessageLanes(
+      int bytesPerFlush, long capacity, @NotNull MessageOverflowPolicy overflowPolicy) {
+    this.bytesPerFlush = bytesPerFlush;
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * Returns the fragment bytes per flush that pace a recipient to the {@code lanes.rate} {@link
+   * MessagingOptions}, in bytes per second, when flushing every {@code flushPeriodMillis}.
+   *
+   * @param flushPeriodMillis the time between two flushes
+   * @return the fragment bytes per flush
+   */
+  public static int getBytesPerFlush(long flushPeriodMillis) {
+    long rate = MessagingOptions.getLong("lanes.rate", DEFAULT_BYTES_PER_SECOND);
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(1, rate * flushPeriodMillis / 1000));
+  }
+
+  /**
+   * Queues {@code message} in the lane of {@code priority} and sends as much as the lanes of
+   * {@code recipient} allow right away. If the message would exceed the capacity, queued messages
+   * or the message itself are dropped as the {@link MessageOverflowPolicy} dictates.
+   *
+   * @param recipient the recipient of the message
+   * @param message the framed client-bound message
+   * @param priority the priority of the message
+   * @param transferIds whether the recipient negotiated {@link MessageCapabilities#TRANSFER_IDS}
+   * @param sink receives the frames that can be sent right away
+   * @return the number of messages dropped, including {@code message} if it was
+   */
+  public int send(
+      @NotNull K recipient,
+      @NotNull FramedMessage message,
+      @NotNull MessagePriority priority,
+      boolean transferIds,
+      @NotNull Sink<K> sink) {
+    return queue(recipient, message, priority, transferIds, sink);
+  }
+
+  /**
+   * Like {@link #send(Object, FramedMessage, MessagePriority, boolean, Sink)}, but leaves sending
+   * to the next {@link #flush(Sink)}, e.g. for threads the transport must not be written from.
+   *
+   * @param recipient the recipient of the message
+   * @param message the framed client-bound message
+   * @param priority the priority of the message
+   * @param transferIds whether the recipient negotiated {@link MessageCapabilities#TRANSFER_IDS}
+   * @return the number of messages dropped, including {@code message} if it was
+   */
+  public int queue(
+      @NotNull K recipient,
+      @NotNull FramedMessage message,
+      @NotNull MessagePriority priority,
+      boolean transferIds) {
+    return queue(recipient, message, priority, transferIds, null);
+  }
+
+  private int queue(
+      K recipient,
+      FramedMessage message,
+      MessagePriority priority,
+      boolean transferIds,
+      @Nullable Sink<K> sink) {
+    Transfer transfer = new Transfer(message, priority);
+    while (true) {
+      Lanes lanes =
+          this.recipients.computeIfAbsent(
+              recipient, ignored -> new Lanes(transferIds, this.bytesPerFlush));
+      synchronized (lanes) {
+        // Lost a race against a flush that found the lanes empty; queue in fresh ones.
+        if (lanes.removed) {
+          continue;
+        }
+        int dropped = 0;
+        if (lanes.queuedBytes + transfer.remaining > this.capacity && !lanes.isEmpty()) {
+          dropped =
+              lanes.makeRoom(
+                  transfer.priority, transfer.remaining, this.capacity, this.overflowPolicy);
+          if (dropped < 0) {
+            return 1;
+          }
+        }
+        lanes.queue(transfer);
+        if (sink != null) {
+          lanes.drain(recipient, sink);
+        }
+        return dropped;
+      }
+    }
+  }
+
+  /**
+   * Makes room for a message a {@link MessageBatcher} is about to hold for {@code recipient} until
+   * its next flush, as the {@link MessageOverflowPolicy} dictates. Only queued messages are
+   * dropped, never ones the batcher holds already.
+   *
+   * @param recipient the recipient of the message
+   * @param priority the priority of the message
+   * @param size the encoded size of the message
+   * @param held the bytes the batcher holds for the recipient already
+   * @return the number of queued messages dropped, or {@code -1} if the message must be dropped
+   *     instead, in which case nothing was
+   */
+  int reserve(@NotNull K recipient, @NotNull MessagePriority priority, long size, long held) {
+    // Blocking senders waited for room already; the others queue over the capacity.
+    if (this.overflowPolicy == MessageOverflowPolicy.BLOCK) {
+      return 0;
+    }
+    Lanes lanes = this.recipients.get(recipient);
+    if (lanes == null) {
+      return reserveEmpty(size, held);
+    }
+    synchronized (lanes) {
+      if (lanes.removed || lanes.isEmpty()) {
+        return reserveEmpty(size, held);
+      }
+      if (lanes.queuedBytes + held + size <= this.capacity) {
+        return 0;
+      }
+      return lanes.makeRoom(priority, held + size, this.capacity, this.overflowPolicy);
+    }
+  }
+
+  private int reserveEmpty(long size, long held) {
+    // An empty queue accepts any message, however large, but not on top of held ones.
+    return held > 0 && held + size > this.capacity ? -1 : 0;
+  }
+
+  /**
+   * Waits until the bytes queued for {@code recipient} are below the capacity, if the {@link
+   * MessageOverflowPolicy} is {@link MessageOverflowPolicy#BLOCK BLOCK}. Must not be called by a
+   * thread that {@linkplain #flush(Sink) flushes} these lanes.
+   *
+   * @param recipient the recipient about to be sent a message
+   */
+  public void awaitCapacity(@NotNull K recipient) {
+    if (this.overflowPolicy != MessageOverflowPolicy.BLOCK) {
+      return;
+    }
+    Lanes lanes = this.recipients.get(recipient);
+    if (lanes == null) {
+      return;
+    }
+    long deadline = System.nanoTime() + BLOCK_TIMEOUT_NANOS;
+    synchronized (lanes) {
+      try {
+        while (!lanes.removed && lanes.queuedBytes >= this.capacity) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return;
+          }
+          TimeUnit.NANOSECONDS.timedWait(lanes, remaining);
+        }
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Returns the bytes queued for {@code recipient} that were not sent yet.
+   *
+   * @param recipient the recipient
+   * @return the queued bytes
+   */
+  public long getQueuedBytes(@NotNull K recipient) {
+    Lanes lanes = this.recipients.get(recipient);
+    if (lanes == null) {
+      return 0;
+    }
+    synchronized (lanes) {
+      return lanes.queuedBytes;
+    }
+  }
+
+  /**
+   * Returns the messages queued for {@code recipient} that were not completely sent yet.
+   *
+   * @param recipient the recipient
+   * @return the queued messages
+   */
+  public int getQueuedMessages(@NotNull K recipient) {
+    Lanes lanes = this.recipients.get(recipient);
+    if (lanes == null) {
+      return 0;
+    }
+    synchronized (lanes) {
+      return lanes.queuedMessages;
+    }
+  }
+
+  /**
+   * Returns whether more than half the capacity is queued for {@code recipient}, meaning its
+   * connection does not keep up with what it is sent.
+   *
+   * @param recipient the recipient
+   * @return {@code true} if the recipient is congested
+   */
+  public boolean isCongested(@NotNull K recipient) {
+    return getQueuedBytes(recipient) > this.capacity / 2;
+  }
+
+  /**
+   * Returns whether nothing is queued for {@code recipient}, so that a single frame sent to it
+   * right now, bypassing the lanes, would not overtake anything.
+   *
+   * @param recipient the recipient
+   * @return {@code true} if no frame is waiting to be sent to the recipient
+   */
+  public boolean isIdle(@NotNull K recipient) {
+    Lanes lanes = this.recipients.get(recipient);
+    if (lanes == null) {
+      return true;
+    }
+    synchronized (lanes) {
+      return lanes.isEmpty();
+    }
+  }
+
+  /**
+   * Renews the allowance of every recipient and sends what it permits.
+   *
+   * @param sink receives the frames of every recipient, in order
+   */
+  public void flush(@NotNull Sink<K> sink) {
+    for (Map.Entry<K, Lanes> entry : this.recipients.entrySet()) {
+      Lanes lanes = entry.getValue();
+      synchronized (lanes) {
+        lanes.allowance = this.bytesPerFlush;
+        lanes.drain(entry.getKey(), sink);
+        if (lanes.isEmpty()) {
+          lanes.removed = true;
+          this.recipients.remove(entry.getKey(), lanes);
+        }
+        if (this.overflowPolicy == MessageOverflowPolicy.BLOCK) {
+          // Wake senders waiting for the room this flush freed.
+          lanes.notifyAll();
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops everything queued for {@code recipient}, e.g. once it disconnected.
+   *
+   * @param recipient the recipient whose messages to drop
+   */
+  public void remove(@NotNull K recipient) {
+    Lanes lanes = this.recipients.remove(recipient);
+    if (lanes != null) {
+      synchronized (lanes) {
+        lanes.removed = true;
+        lanes.notifyAll();
+      }
+    }
+  }
+
+  /** The lanes of one recipient. Only accessed while holding its monitor. */
+  private static final class Lanes {
+    private final boolean transferIds;
+    private final List<ArrayDeque<Transfer>> queues = new ArrayList<>(PRIORITIES.length);
+    private int allowance;
+    private int nextTransferId;
+    private long nextSequence;
+    private long queuedBytes;
+    private int queuedMessages;
+    // Without transfer ids, the transfer whose fragments are being sent blocks all others.
+    private Transfer active;
+    private boolean removed;
+
+    private Lanes(boolean transferIds, int allowance) {
+      this.transferIds = transferIds;
+      this.allowance = allowance;
+      for (int iii = 0; iii < PRIORITIES.length; iii++) {
+        this.queues.add(new ArrayDeque<>());
+      }
+    }
+
+    private boolean isEmpty() {
+      for (ArrayDeque<Transfer> queue : this.queues) {
+        if (!queue.isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void queue(Transfer transfer) {
+      transfer.sequence = this.nextSequence++;
+      this.queues.get(transfer.priority.ordinal()).add(transfer);
+      this.queuedBytes += transfer.remaining;
+      this.queuedMessages++;
+    }
+
+    /**
+     * Drops queued transfers until {@code incoming} more bytes of {@code priority} fit into {@code
+     * capacity}.
+     *
+     * @return the number of dropped transfers, or {@code -1} if the incoming bytes must be dropped
+     *     instead, in which case nothing was
+     */
+    private int makeRoom(
+        MessagePriority priority, long incoming, long capacity, MessageOverflowPolicy policy) {
+      if (policy == MessageOverflowPolicy.BLOCK) {
+        return 0;
+      }
+
+      // Only drop anything if that frees enough room for the incoming transfer. Dropping the
+      // oldest may reach into every lane, while dropping by priority spares more urgent ones.
+      int lastLane = policy == MessageOverflowPolicy.DROP_OLDEST ? 0 : priority.ordinal();
+      long excess = this.queuedBytes + incoming - capacity;
+      long droppable = 0;
+      for (int lane = PRIORITIES.length - 1; lane >= lastLane && droppable < excess; lane--) {
+        for (Transfer transfer : this.queues.get(lane)) {
+          if (transfer.next == 0) {
+            droppable += transfer.remaining;
+          }
+        }
+      }
+      if (droppable < excess) {
+        return -1;
+      }
+
+      int dropped = 0;
+      while (this.queuedBytes + incoming > capacity) {
+        Transfer victim =
+            policy == MessageOverflowPolicy.DROP_OLDEST ? findOldest() : findNewest(lastLane);
+        this.queues.get(victim.priority.ordinal()).remove(victim);
+        this.queuedBytes -= victim.remaining;
+        this.queuedMessages--;
+        dropped++;
+      }
+      return dropped;
+    }
+
+    private Transfer findOldest() {
+      Transfer oldest = null;
+      for (ArrayDeque<Transfer> queue : this.queues) {
+        for (Transfer transfer : queue) {
+          if (transfer.next == 0) {
+            if (oldest == null || transfer.sequence < oldest.sequence) {
+              oldest = transfer;
+            }
+            break;
+          }
+        }
+      }
+      return oldest;
+    }
+
+    private Transfer findNewest(int lastLane) {
+      for (int lane = PRIORITIES.length - 1; lane >= lastLane; lane--) {
+        Iterator<Transfer> iterator = this.queues.get(lane).descendingIterator();
+        while (iterator.hasNext()) {
+          Transfer transfer = iterator.next();
+          if (transfer.next == 0) {
+            return transfer;
+          }
+        }
+      }
+      return null;
+    }
+
+    /** Sends frames until every lane is empty, blocked or out of allowance. */
+    private <K> void drain(K recipient, Sink<K> sink) {
+      // Start over from the most urgent lane after every frame.
+      boolean sent = true;
+      while (sent) {
+        sent = sendNext(recipient, sink);
+      }
+    }
+
+    private <K> boolean sendNext(K recipient, Sink<K> sink) {
+      for (ArrayDeque<Transfer> queue : this.queues) {
+        Transfer transfer = queue.peek();
+        if (transfer == null) {
+          continue;
+        }
+
+        if (!transfer.message.isFragmented()) {
+          queue.poll();
+          this.queuedBytes -= transfer.remaining;
+          this.queuedMessages--;
+          sink.send(recipient, false, NO_TRANSFER, transfer.message.getSharedFrame(0));
+          return true;
+        }
+
+        boolean urgent = transfer.priority == MessagePriority.URGENT;
+        if ((!this.transferIds && this.active != null && this.active != transfer)
+            || (!urgent && this.allowance <= 0)) {
+          continue;
+        }
+
+        if (transfer.next == 0) {
+          this.active = transfer;
+          if (this.transferIds) {
+            transfer.id = this.nextTransferId;
+            this.nextTransferId = (this.nextTransferId + 1) & MAX_TRANSFER_ID;
+          }
+        }
+        ByteBuffer frame = transfer.message.getSharedFrame(transfer.next++);
+        int length = frame.remaining();
+        if (!urgent) {
+          this.allowance -= length;
+        }
+        transfer.remaining -= length;
+        this.queuedBytes -= length;
+        if (transfer.next == transfer.message.getFrameCount()) {
+          queue.poll();
+          this.queuedMessages--;
+          if (this.active == transfer) {
+            this.active = null;
+          }
+        }
+        sink.send(recipient, true, transfer.id, frame);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static final class Transfer {
+    private final FramedMessage message;
+    private final MessagePriority priority;
+    private int next;
+    private int id = NO_TRANSFER;
+    private long sequence;
+    // The bytes of the frames not sent yet.
+    private long remaining;
+
+    private Transfer(FramedMessage message, MessagePriority priority) {
+      this.message = message;
+      this.priority = priority;
+      this.remaining = message.getSize();
+    }
+  }
+
+  /** Receives the frames scheduled by the lanes. */
+  @FunctionalInterface
+  public interface Sink<K> {
+    /**
+     * Sends a single frame.
+     *
+     * @param recipient the recipient of the frame
+     * @param fragmented whether the frame belongs on the fragmented channel
+     * @param transfer the transfer id to prefix the frame with, or {@link MessageLanes#NO_TRANSFER}
+     * @param frame the frame payload, backed by an array shared with other recipients of the same
+     *     message, which must not be modified
+     */
+    void send(K recipient, boolean fragmented, int transfer, ByteBuffer frame);
+  }
+}
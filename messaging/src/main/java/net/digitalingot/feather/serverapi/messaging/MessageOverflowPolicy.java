@@ -0,0 +1,22 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+/**
+ * What {@link MessageLanes} does with a client-bound message that would exceed the bytes a
+ * recipient may have queued. Transfers whose first fragment was already sent are never dropped,
+ * since the client could not tell they are incomplete.
+ */
+public enum MessageOverflowPolicy {
+  /**
+   * Makes senders wait until the queue drained below its capacity, up to the {@code
+   * lanes.block-timeout} {@link MessagingOptions}. Nothing is dropped: senders that must not wait,
+   * such as the thread draining the queue, or that waited for too long queue over the capacity.
+   */
+  BLOCK,
+  /** Drops the oldest queued messages, regardless of their priority. */
+  DROP_OLDEST,
+  /**
+   * Drops the newest queued messages of the least urgent lane first, never touching lanes more
+   * urgent than the new message. The new message is dropped if that does not free enough room.
+   */
+  DROP_BY_PRIORITY
+}
@@ -0,0 +1,15 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+/**
+ * The outbound lane a client-bound message travels in, see {@link MessageLanes}. Messages of one
+ * priority reach the client in the order they were sent, but may overtake messages of a lower
+ * priority.
+ */
+public enum MessagePriority {
+  /** Latency-sensitive messages with no ordering ties to other messages, such as RPC responses. */
+  URGENT,
+  /** Everything else. */
+  NORMAL,
+  /** Large transfers nothing else depends on, which may yield to any other message. */
+  BULK
+}
@@ -6,6 +6,7 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import org.jetbrains.annotations.Nullable;
 
 public interface MessageReader {
 
@@ -17,6 +18,20 @@ public interface MessageReader {
 
   String readUtf(int limit);
 
+  /**
+   * Reads a string that is only decoded when first accessed. Its encoded length is validated
+   * against {@code limit} right away, its decoded length is not.
+   */
+  LazyUtf readLazyUtf(int limit);
+
+  /**
+   * Reads a string that may be defined once per connection and referenced afterwards. Without a
+   * negotiated {@link MessageStringTable} this is {@link #readUtf(int)}. With one, a varint tag
+   * {@code id << 1 | define} comes first; if {@code define} is set the string follows and is stored
+   * as {@code id}, otherwise the string previously stored as {@code id} is returned.
+   */
+  String readInternedUtf(int limit);
+
   byte readByte();
 
   short readUnsignedByte();
@@ -31,8 +46,17 @@ public interface MessageReader {
 
   <T> List<T> readList(Decoder<T> decoder);
 
+  /** Reads a list of at most {@code limit} elements, rejecting larger ones before allocating. */
+  <T> List<T> readList(Decoder<T> decoder, int limit);
+
   <T, C extends Collection<T>> C readCollection(IntFunction<C> factory, Decoder<T> decoder);
 
+  /**
+   * Reads a collection of at most {@code limit} elements, rejecting larger ones before allocating.
+   */
+  <T, C extends Collection<T>> C readCollection(
+      IntFunction<C> factory, Decoder<T> decoder, int limit);
+
   <E extends Enum<E>> E readEnum(Class<E> type);
 
   long readLong();
@@ -41,6 +65,24 @@ public interface MessageReader {
 
   <T> Optional<T> readOptional(Decoder<T> decoder);
 
+  @Nullable
+  String readOptionalUtf();
+
+  @Nullable
+  String readOptionalUtf(int limit);
+
+  /** Reads a presence flag followed by a var int if present, returning {@code absent} if not. */
+  int readOptionalVarInt(int absent);
+
+  /** Reads a presence flag followed by an int if present, returning {@code absent} if not. */
+  int readOptionalInt(int absent);
+
+  /** Reads a presence flag followed by a long if present, returning {@code absent} if not. */
+  long readOptionalLong(long absent);
+
+  /** Returns whether any bytes are left to read, e.g. to detect trailing fields added later. */
+  boolean isReadable();
+
   @FunctionalInterface
   interface Decoder<T> extends Function<MessageReader, T> {}
 }
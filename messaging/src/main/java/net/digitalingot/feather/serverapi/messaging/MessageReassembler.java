@@ -0,0 +1,232 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.digitalingot.feather.serverapi.messaging.exception.MessageException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reassembles fragmented messages per sender. The first frame of every transfer is the
+ * fragmentation header, followed by its fragments in order. Senders that negotiated {@link
+ * MessageCapabilities#TRANSFER_IDS} may interleave the frames of several transfers, see {@link
+ * #acceptTransfer(Object, byte[], MessageDecoder)}.
+ *
+ * <p>Reassembly storage is borrowed from a {@link MessageBufferPool} and its capacity reserved
+ * against a budget shared by all senders, so concurrent large transfers cannot exhaust memory.
+ * Transfers that do not complete within the timeout are discarded by {@link #expire()}.
+ *
+ * <p>All methods are safe to call from any thread. Frames of one transfer are handled one at a
+ * time, and a discarded transfer hands its storage back only once no frame is being handled.
+ *
+ * @param <K> the sender key, usually the player's unique id
+ */
+public class MessageReassembler<K> {
+  public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+  public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private final long budgetBytes;
+  private final long timeoutNanos;
+  @NotNull private final MessageBufferPool pool;
+  // Keyed by sender, or by TransferKey for frames carrying a transfer id.
+  private final Map<Object, Transfer> transfers = new ConcurrentHashMap<>();
+  private final AtomicLong inFlightBytes = new AtomicLong();
+
+  public MessageReassembler() {
+    this(DEFAULT_BUDGET_BYTES, DEFAULT_TIMEOUT_MILLIS, MessageBufferPool.SHARED);
+  }
+
+  public MessageReassembler(long budgetBytes, long timeoutMillis, @NotNull MessageBufferPool pool) {
+    this.budgetBytes = budgetBytes;
+    this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    this.pool = pool;
+  }
+
+  /**
+   * Accepts the next frame sent by {@code sender} on the fragmented channel.
+   *
+   * @param sender the sender of the frame
+   * @param frame the frame payload
+   * @param decoder decodes the message once it is complete
+   * @return the decoded message once its last fragment arrived, otherwise {@code null}
+   * @throws MessageException if the frame is malformed or the reassembly budget is exhausted; any
+   *     transfer in progress for the sender is discarded
+   */
+  @Nullable
+  public <T extends MessageHandler> Message<T> accept(
+      @NotNull K sender, byte @NotNull [] frame, @NotNull MessageDecoder<T> decoder) {
+    return accept((Object) sender, SimpleMessageBuffer.of(frame), decoder);
+  }
+
+  /**
+   * Like {@link #accept(Object, byte[], MessageDecoder)}, for a sender that negotiated {@link
+   * MessageCapabilities#TRANSFER_IDS}: every frame starts with the id of its transfer, and frames
+   * of different transfers may arrive interleaved.
+   *
+   * @param sender the sender of the frame
+   * @param frame the frame payload, starting with the transfer id
+   * @param decoder decodes the message once it is complete
+   * @return the decoded message once its last fragment arrived, otherwise {@code null}
+   * @throws MessageException if the frame is malformed or the reassembly budget is exhausted; the
+   *     transfer the frame belongs to is discarded
+   */
+  @Nullable
+  public <T extends MessageHandler> Message<T> acceptTransfer(
+      @NotNull K sender, byte @NotNull [] frame, @NotNull MessageDecoder<T> decoder) {
+    SimpleMessageBuffer buffer = SimpleMessageBuffer.of(frame);
+    TransferKey<K> key = new TransferKey<>(sender, buffer.readUnsignedByte());
+    return accept(key, buffer, decoder);
+  }
+
+  private <T extends MessageHandler> Message<T> accept(
+      Object key, SimpleMessageBuffer frame, MessageDecoder<T> decoder) {
+    Transfer begun = null;
+    Transfer transfer = this.transfers.get(key);
+
+    if (transfer == null) {
+      begun = begin(frame);
+      transfer = this.transfers.putIfAbsent(key, begun);
+      if (transfer != null) {
+        // Two frames raced to begin the same transfer; this one cannot be its header.
+        begun.release(this.inFlightBytes);
+        throw new MessageException("Transfer already in progress");
+      }
+      transfer = begun;
+    }
+
+    synchronized (transfer) {
+      if (transfer.released) {
+        throw new MessageException("Transfer was discarded");
+      }
+
+      boolean complete;
+      try {
+        complete =
+            transfer == begun
+                ? transfer.defragmenter.isComplete()
+                : transfer.defragmenter.decode(frame);
+      } catch (RuntimeException exception) {
+        discard(key, transfer);
+        throw exception;
+      }
+
+      if (!complete) {
+        return null;
+      }
+
+      try {
+        return decoder.decode(transfer.defragmenter.getMessage());
+      } finally {
+        discard(key, transfer);
+      }
+    }
+  }
+
+  private Transfer begin(SimpleMessageBuffer header) {
+    short count = header.readUnsignedByte();
+    int size = MessageDefragmenter.readSize(header);
+    // Reserve what the pool actually hands out, not just what the header asks for.
+    int reserved = MessageBufferPool.getCapacity(size);
+    if (this.inFlightBytes.addAndGet(reserved) > this.budgetBytes) {
+      this.inFlightBytes.addAndGet(-reserved);
+      throw new MessageException("Reassembly budget exhausted");
+    }
+    MessageDefragmenter defragmenter = new MessageDefragmenter(count, size, this.pool);
+    return new Transfer(defragmenter, reserved, System.nanoTime());
+  }
+
+  private void discard(Object key, Transfer transfer) {
+    this.transfers.remove(key, transfer);
+    // Waits for a frame being handled, after which no thread can reach the storage anymore.
+    transfer.release(this.inFlightBytes);
+  }
+
+  /**
+   * Discards the transfers in progress for {@code sender}, if any.
+   *
+   * @param sender the sender whose transfers to discard
+   */
+  public void remove(@NotNull K sender) {
+    for (Map.Entry<Object, Transfer> entry : this.transfers.entrySet()) {
+      Object key = entry.getKey();
+      if (key.equals(sender)
+          || (key instanceof TransferKey && ((TransferKey<?>) key).sender.equals(sender))) {
+        discard(key, entry.getValue());
+      }
+    }
+  }
+
+  /** Discards every transfer that has been in progress for longer than the timeout. */
+  public void expire() {
+    long now = System.nanoTime();
+    Iterator<Map.Entry<Object, Transfer>> iterator = this.transfers.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Object, Transfer> entry = iterator.next();
+      if (now - entry.getValue().startedAt > this.timeoutNanos) {
+        discard(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the number of bytes currently reserved by transfers in progress.
+   *
+   * @return the reserved byte count
+   */
+  public long getInFlightBytes() {
+    return this.inFlightBytes.get();
+  }
+
+  /** A transfer in progress. Its state is guarded by its monitor. */
+  private static class Transfer {
+    private final MessageDefragmenter defragmenter;
+    private final int reserved;
+    private final long startedAt;
+    private boolean released;
+
+    private Transfer(MessageDefragmenter defragmenter, int reserved, long startedAt) {
+      this.defragmenter = defragmenter;
+      this.reserved = reserved;
+      this.startedAt = startedAt;
+    }
+
+    private synchronized void release(AtomicLong inFlightBytes) {
+      if (!this.released) {
+        this.released = true;
+        this.defragmenter.release();
+        inFlightBytes.addAndGet(-this.reserved);
+      }
+    }
+  }
+
+  private static final class TransferKey<K> {
+    private final K sender;
+    private final int transfer;
+
+    private TransferKey(K sender, int transfer) {
+      this.sender = sender;
+      this.transfer = transfer;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (other == null || getClass() != other.getClass()) {
+        return false;
+      }
+      TransferKey<?> that = (TransferKey<?>) other;
+      return this.transfer == that.transfer && this.sender.equals(that.sender);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.sender, this.transfer);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.util.Collection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** Exact wire sizes of the primitives written by {@link MessageWriter}. */
+public final class MessageSizes {
+  public static final int BOOL = 1;
+  public static final int BYTE = 1;
+  public static final int INT = 4;
+  public static final int LONG = 8;
+  public static final int UUID = 2 * LONG;
+
+  private MessageSizes() {
+    throw new AssertionError();
+  }
+
+  public static int varInt(int value) {
+    int result = 0;
+    do {
+      result++;
+      value >>>= 7;
+    } while (value != 0);
+    return result;
+  }
+
+  /**
+   * Returns the number of bytes {@code value} occupies when encoded as UTF-8. Unpaired surrogates
+   * count as the single replacement byte the JDK encoder substitutes for them.
+   */
+  public static int utf8Length(@NotNull CharSequence value) {
+    int length = value.length();
+    int encoded = length;
+    for (int iii = 0; iii < length; iii++) {
+      char c = value.charAt(iii);
+      if (c < 0x80) {
+        continue;
+      }
+      if (c < 0x800) {
+        encoded += 1;
+      } else if (Character.isHighSurrogate(c)
+          && iii + 1 < length
+          && Character.isLowSurrogate(value.charAt(iii + 1))) {
+        encoded += 2;
+        iii++;
+      } else if (!Character.isSurrogate(c)) {
+        encoded += 2;
+      }
+    }
+    return encoded;
+  }
+
+  public static int utf(@NotNull String value) {
+    int encoded = utf8Length(value);
+    return varInt(encoded) + encoded;
+  }
+
+  public static int byteArray(byte @NotNull [] value) {
+    return varInt(value.length) + value.length;
+  }
+
+  public static int enumValue(@NotNull Enum<?> value) {
+    return varInt(value.ordinal());
+  }
+
+  public static int optionalUtf(@Nullable String value) {
+    return BOOL + (value != null ? utf(value) : 0);
+  }
+
+  public static int optionalVarInt(boolean present, int value) {
+    return BOOL + (present ? varInt(value) : 0);
+  }
+
+  public static int optionalInt(boolean present) {
+    return BOOL + (present ? INT : 0);
+  }
+
+  public static int optionalLong(boolean present) {
+    return BOOL + (present ? LONG : 0);
+  }
+
+  public static <T> int collection(@NotNull Collection<T> items, @NotNull Sizer<T> sizer) {
+    int size = varInt(items.size());
+    for (T item : items) {
+      size += sizer.sizeOf(item);
+    }
+    return size;
+  }
+
+  public static int uuids(@NotNull Collection<java.util.UUID> items) {
+    return varInt(items.size()) + items.size() * UUID;
+  }
+
+  @FunctionalInterface
+  public interface Sizer<T> {
+    int sizeOf(T value);
+  }
+}
@@ -0,0 +1,39 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import net.digitalingot.feather.serverapi.messaging.exception.MessageException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The strings a client defined on its connection, referenced by id in later messages. Only used
+ * once both sides agreed on {@link MessageCapabilities#STRING_TABLE}; see {@link
+ * MessageReader#readInternedUtf(int)} for the wire format.
+ *
+ * <p>Resolving a reference returns the very instance decoded with the definition, so repeated
+ * frame names and RPC paths cost neither an allocation nor rehashing when used as map keys.
+ */
+public final class MessageStringTable {
+  /** The number of ids a client may define; redefining an id replaces its string. */
+  public static final int MAX_ENTRIES = 256;
+
+  private final String[] entries = new String[MAX_ENTRIES];
+
+  synchronized void define(int id, @NotNull String value) {
+    this.entries[checkId(id)] = value;
+  }
+
+  @NotNull
+  synchronized String get(int id) {
+    String value = this.entries[checkId(id)];
+    if (value == null) {
+      throw new MessageException("Undefined string " + id);
+    }
+    return value;
+  }
+
+  private static int checkId(int id) {
+    if (id < 0 || id >= MAX_ENTRIES) {
+      throw new MessageException("String id " + id + " out of range");
+    }
+    return id;
+  }
+}
@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public interface MessageWriter {
   MessageWriter writeInt(int value);
@@ -32,6 +33,19 @@ public interface MessageWriter {
 
   <T> MessageWriter writeOptional(@NotNull T value, @NotNull Encoder<T> encoder);
 
+  MessageWriter writeOptionalUtf(@Nullable String string);
+
+  MessageWriter writeOptionalUtf(@Nullable String string, int limit);
+
+  /** Writes a presence flag followed by {@code value} as a var int if {@code present}. */
+  MessageWriter writeOptionalVarInt(boolean present, int value);
+
+  /** Writes a presence flag followed by {@code value} as an int if {@code present}. */
+  MessageWriter writeOptionalInt(boolean present, int value);
+
+  /** Writes a presence flag followed by {@code value} as a long if {@code present}. */
+  MessageWriter writeOptionalLong(boolean present, long value);
+
   @FunctionalInterface
   interface Encoder<T> extends BiConsumer<MessageWriter, T> {}
 }
@@ -0,0 +1,53 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.util.Locale;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Tunables of the messaging layer, read from system properties prefixed with {@value #PREFIX}, for
+ * example {@code -Dfeather.messaging.compression.threshold=2048}.
+ */
+public final class MessagingOptions {
+  public static final String PREFIX = "feather.messaging.";
+
+  private MessagingOptions() {
+    throw new AssertionError();
+  }
+
+  public static int getInt(@NotNull String name, int defaultValue) {
+    return Integer.getInteger(PREFIX + name, defaultValue);
+  }
+
+  public static long getLong(@NotNull String name, long defaultValue) {
+    return Long.getLong(PREFIX + name, defaultValue);
+  }
+
+  public static boolean getBoolean(@NotNull String name, boolean defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    return value != null ? Boolean.parseBoolean(value) : defaultValue;
+  }
+
+  /**
+   * Reads the constant of {@code defaultValue}'s type named by the option, case-insensitively and
+   * with dashes standing for underscores, e.g. {@code drop-oldest}.
+   *
+   * @param name the option name, without the prefix
+   * @param defaultValue the constant returned if the option is unset or names no constant
+   * @param <E> the enum type
+   * @return the configured constant
+   */
+  @NotNull
+  public static <E extends Enum<E>> E getEnum(@NotNull String name, @NotNull E defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Enum.valueOf(
+          defaultValue.getDeclaringClass(),
+          value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException exception) {
+      return defaultValue;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A client-bound message that has been framed once up front, so that sending it again, to any
+ * number of players, only costs the transport write. Prepare messages that are identical for many
+ * recipients, such as the server background or the page of a registered UI.
+ *
+ * <p>Other variants, compressed for recipients that negotiated {@link
+ * MessageCapabilities#COMPRESSION} or fragmented for a different frame size, are framed once the
+ * first recipient needs them. At most {@link #MAX_VARIANTS} of them are kept, since prepared
+ * messages tend to live long; further variants are framed anew for every recipient. Prepared
+ * messages are immutable and safe to share between threads; the prepared message must not be
+ * modified afterwards.
+ */
+public final class PreparedMessage {
+  // Enough for both compressions of every frame size negotiation yields, with and without room
+  // for a transfer id.
+  public static final int MAX_VARIANTS = 32;
+
+  @NotNull private final Message<?> message;
+  private final int maxFrameSize;
+  @NotNull private final MessageCompressor compressor;
+  @NotNull private final FramedMessage plain;
+  private final int encodedSize;
+  // Keyed by frame size and compression, see variant().
+  private final Map<Integer, FramedMessage> variants = new ConcurrentHashMap<>();
+
+  private PreparedMessage(
+      @NotNull Message<?> message, int maxFrameSize, @NotNull MessageCompressor compressor) {
+    this.message = message;
+    this.maxFrameSize = maxFrameSize;
+    this.compressor = compressor;
+    this.plain = MessageFragmenter.CLIENT_BOUND.frame(message, maxFrameSize, null, false);
+    this.encodedSize = MessageEncoder.CLIENT_BOUND.getEncodedSize(message);
+  }
+
+  /**
+   * Frames {@code message} for a transport accepting at most {@code maxFrameSize} bytes per frame.
+   *
+   * @param message the client-bound message
+   * @param maxFrameSize the largest payload the transport accepts in a single frame
+   * @param compressor the compressor applied for recipients that negotiated compression
+   * @return the prepared message
+   */
+  @NotNull
+  public static PreparedMessage prepare(
+      @NotNull Message<?> message, int maxFrameSize, @NotNull MessageCompressor compressor) {
+    return new PreparedMessage(message, maxFrameSize, compressor);
+  }
+
+  @NotNull
+  public Message<?> getMessage() {
+    return this.message;
+  }
+
+  public int getMaxFrameSize() {
+    return this.maxFrameSize;
+  }
+
+  /** Returns the size of the message encoded, before framing and compression. */
+  int getEncodedSize() {
+    return this.encodedSize;
+  }
+
+  /**
+   * Returns the frames to send to a recipient accepting the frame size this message was prepared
+   * for.
+   *
+   * @param compress whether the recipient negotiated {@link MessageCapabilities#COMPRESSION}
+   * @return the framed message
+   */
+  @NotNull
+  public FramedMessage getFrames(boolean compress) {
+    return getFrames(compress, this.maxFrameSize);
+  }
+
+  /**
+   * Returns the frames to send to a recipient.
+   *
+   * @param compress whether the recipient negotiated {@link MessageCapabilities#COMPRESSION}
+   * @param maxFrameSize the largest frame the recipient accepts
+   * @return the framed message
+   */
+  @NotNull
+  public FramedMessage getFrames(boolean compress, int maxFrameSize) {
+    if (!compress
+        && (maxFrameSize == this.maxFrameSize
+            || (!this.plain.isFragmented() && this.plain.getSize() <= maxFrameSize))) {
+      return this.plain;
+    }
+    int variant = variant(compress, maxFrameSize);
+    FramedMessage framed = this.variants.get(variant);
+    if (framed == null) {
+      framed =
+          MessageFragmenter.CLIENT_BOUND.frame(
+              this.message, maxFrameSize, compress ? this.compressor : null, false);
+      if (this.variants.size() < MAX_VARIANTS) {
+        FramedMessage existing = this.variants.putIfAbsent(variant, framed);
+        if (existing != null) {
+          framed = existing;
+        }
+      }
+    }
+    return framed;
+  }
+
+  private static int variant(boolean compress, int maxFrameSize) {
+    return maxFrameSize << 1 | (compress ? 1 : 0);
+  }
+}
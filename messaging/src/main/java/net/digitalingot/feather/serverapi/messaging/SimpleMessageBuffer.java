@@ -10,6 +10,7 @@ import java.util.UUID;
 import java.util.function.IntFunction;
 import net.digitalingot.feather.serverapi.messaging.exception.MessageException;
 import net.digitalingot.feather.serverapi.messaging.exception.OverflowException;
+import net.digitalingot.feather.serverapi.messaging.exception.UnderflowException;
 import org.jetbrains.annotations.ApiStatus.Internal;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -19,12 +20,20 @@ public class SimpleMessageBuffer implements MessageBuffer {
   private static final int DEFAULT_CAPACITY = 32;
   private static final float DEFAULT_EXPAND_FACTOR = 2f;
   private static final int WORST_CASE_UTF_ENCODED_SIZE = 3;
+  // Short strings (ids, frame names, paths) are encoded straight into the backing array. Longer
+  // ones are faster through String#getBytes, which the JDK vectorizes.
+  private static final int MAX_DIRECT_UTF_LENGTH = 16;
   private final float expandFactor;
+  @Nullable private final MessageBufferPool pool;
   private ByteBuffer buffer;
+  // Set when the backing storage is reused once decoding is done, so views must copy.
+  private boolean borrowed;
+  @Nullable private MessageStringTable stringTable;
 
   public SimpleMessageBuffer(ByteBuffer buffer) {
     this.buffer = buffer;
     this.expandFactor = DEFAULT_EXPAND_FACTOR;
+    this.pool = null;
   }
 
   public SimpleMessageBuffer() {
@@ -38,43 +47,77 @@ public class SimpleMessageBuffer implements MessageBuffer {
   public SimpleMessageBuffer(int capacity, float expandFactor) {
     this.buffer = ByteBuffer.allocate(capacity);
     this.expandFactor = expandFactor;
+    this.pool = null;
+  }
+
+  private SimpleMessageBuffer(@NotNull MessageBufferPool pool, int capacity) {
+    this.buffer = pool.acquire(capacity);
+    this.expandFactor = DEFAULT_EXPAND_FACTOR;
+    this.pool = pool;
   }
 
   public static SimpleMessageBuffer of(byte[] data) {
     return new SimpleMessageBuffer(ByteBuffer.wrap(data));
   }
 
+  /**
+   * Creates a buffer backed by storage borrowed from {@code pool}. Growing the buffer trades the
+   * backing storage for a larger pooled one, and {@link #release()} hands it back once done.
+   */
+  @Internal
+  static SimpleMessageBuffer pooled(@NotNull MessageBufferPool pool, int capacity) {
+    return new SimpleMessageBuffer(pool, capacity);
+  }
+
+  /**
+   * Marks the backing storage as borrowed: it is reused once the message has been decoded, so
+   * {@link #readLazyUtf(int)} copies instead of referencing it.
+   */
+  @Internal
+  SimpleMessageBuffer borrowed() {
+    this.borrowed = true;
+    return this;
+  }
+
+  /** Resolves {@link #readInternedUtf(int)} against the string table of the sender. */
+  @Internal
+  SimpleMessageBuffer withStringTable(@Nullable MessageStringTable stringTable) {
+    this.stringTable = stringTable;
+    return this;
+  }
+
   private static IntFunction<ByteBuffer> getAllocator(ByteBuffer buffer) {
     return buffer.isDirect() ? ByteBuffer::allocateDirect : ByteBuffer::allocate;
   }
 
   private void ensureRemaining(int size) {
     ByteBuffer oldBuffer = this.buffer;
-    if (oldBuffer.remaining() > size) {
+    if (oldBuffer.remaining() >= size) {
       return;
     }
     int newCapacity = (int) (oldBuffer.capacity() * this.expandFactor);
     while (newCapacity < (oldBuffer.capacity() + size)) {
       newCapacity *= this.expandFactor;
     }
-    ByteBuffer newBuffer = getAllocator(oldBuffer).apply(newCapacity);
+    ByteBuffer newBuffer =
+        this.pool != null
+            ? this.pool.acquire(newCapacity)
+            : getAllocator(oldBuffer).apply(newCapacity);
     newBuffer.order(oldBuffer.order());
     oldBuffer.flip();
     newBuffer.put(oldBuffer);
     this.buffer = newBuffer;
+    if (this.pool != null) {
+      this.pool.release(oldBuffer);
+    }
   }
 
   public int getWorstCaseUtfEncodedSize(int length) {
-    return length * WORST_CASE_UTF_ENCODED_SIZE;
+    return (int) Math.min((long) length * WORST_CASE_UTF_ENCODED_SIZE, Integer.MAX_VALUE);
   }
 
   public int varIntSize(int value) {
-    int result = 0;
-    do {
-      result++;
-      value >>>= 7;
-    } while (value != 0);
-    return result;
+    return MessageSizes.varInt(value);
   }
 
   @Override
@@ -126,22 +169,53 @@ public class SimpleMessageBuffer implements MessageBuffer {
 
   @Override
   public String readUtf(int limit) {
-    int encodingLimit = getWorstCaseUtfEncodedSize(limit);
-    int encodedLength = readVarInt();
-    if (encodedLength > encodingLimit) {
-      throw new OverflowException("String", encodedLength, encodingLimit);
-    } else if (encodedLength < 0) {
-      throw new MessageException("Negative string length (" + encodedLength + ")");
+    int encodedLength = readLength("String", getWorstCaseUtfEncodedSize(limit));
+    String decoded;
+    if (this.buffer.hasArray()) {
+      int position = this.buffer.position();
+      decoded =
+          new String(
+              this.buffer.array(),
+              this.buffer.arrayOffset() + position,
+              encodedLength,
+              StandardCharsets.UTF_8);
+      this.buffer.position(position + encodedLength);
+    } else {
+      decoded = new String(readBytes(encodedLength), StandardCharsets.UTF_8);
     }
-    byte[] encoded = new byte[encodedLength];
-    readBytes(encoded);
-    String decoded = new String(encoded, StandardCharsets.UTF_8);
     if (decoded.length() > limit) {
       throw new OverflowException("String", decoded.length(), limit);
     }
     return decoded;
   }
 
+  @Override
+  public LazyUtf readLazyUtf(int limit) {
+    // Only the encoded length can be checked up front; the decoded length is left to the reader.
+    int encodedLength = readLength("String", getWorstCaseUtfEncodedSize(limit));
+    if (this.buffer.hasArray() && !this.borrowed) {
+      int position = this.buffer.position();
+      this.buffer.position(position + encodedLength);
+      return LazyUtf.view(this.buffer.array(), this.buffer.arrayOffset() + position, encodedLength);
+    }
+    return LazyUtf.view(readBytes(encodedLength), 0, encodedLength);
+  }
+
+  @Override
+  public String readInternedUtf(int limit) {
+    if (this.stringTable == null) {
+      return readUtf(limit);
+    }
+    int tag = readVarInt();
+    int id = tag >>> 1;
+    if ((tag & 1) == 0) {
+      return this.stringTable.get(id);
+    }
+    String value = readUtf(limit);
+    this.stringTable.define(id, value);
+    return value;
+  }
+
   @Override
   public MessageWriter writeUtf(@NotNull String string) {
     return writeUtf(string, Integer.MAX_VALUE);
@@ -152,6 +226,9 @@ public class SimpleMessageBuffer implements MessageBuffer {
     if (string.length() > limit) {
       throw new OverflowException("String", string.length(), limit);
     }
+    if (string.length() <= MAX_DIRECT_UTF_LENGTH && this.buffer.hasArray()) {
+      return writeUtfDirect(string, limit);
+    }
     byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
     int encodingLimit = getWorstCaseUtfEncodedSize(limit);
     if (encoded.length > encodingLimit) {
@@ -163,6 +240,26 @@ public class SimpleMessageBuffer implements MessageBuffer {
     return this;
   }
 
+  private MessageWriter writeUtfDirect(@NotNull String string, int limit) {
+    boolean ascii = Utf8.isAscii(string);
+    int encodedLength = ascii ? string.length() : MessageSizes.utf8Length(string);
+    int encodingLimit = getWorstCaseUtfEncodedSize(limit);
+    if (encodedLength > encodingLimit) {
+      throw new OverflowException("String", encodedLength, encodingLimit);
+    }
+    ensureRemaining(varIntSize(encodedLength) + encodedLength);
+    writeVarInt(encodedLength);
+    int position = this.buffer.position();
+    int offset = this.buffer.arrayOffset() + position;
+    if (ascii) {
+      Utf8.encodeAscii(string, this.buffer.array(), offset);
+    } else {
+      Utf8.encode(string, this.buffer.array(), offset);
+    }
+    this.buffer.position(position + encodedLength);
+    return this;
+  }
+
   public List<String> readUtfList() {
     return readList(MessageReader::readUtf);
   }
@@ -171,8 +268,20 @@ public class SimpleMessageBuffer implements MessageBuffer {
     return readCollection(ArrayList::new, decoder);
   }
 
+  @Override
+  public <T> List<T> readList(Decoder<T> decoder, int limit) {
+    return readCollection(ArrayList::new, decoder, limit);
+  }
+
   public <T, C extends Collection<T>> C readCollection(IntFunction<C> factory, Decoder<T> decoder) {
-    int size = readVarInt();
+    return readCollection(factory, decoder, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public <T, C extends Collection<T>> C readCollection(
+      IntFunction<C> factory, Decoder<T> decoder, int limit) {
+    // Every element takes at least one byte, so the remaining bytes bound the size.
+    int size = readLength("Collection", limit);
     C collection = factory.apply(size);
     for (int iii = 0; iii < size; iii++) {
       collection.add(decoder.apply(this));
@@ -182,7 +291,12 @@ public class SimpleMessageBuffer implements MessageBuffer {
 
   @Override
   public <E extends Enum<E>> E readEnum(Class<E> type) {
-    return type.getEnumConstants()[readVarInt()];
+    E[] constants = type.getEnumConstants();
+    int ordinal = readVarInt();
+    if (ordinal < 0 || ordinal >= constants.length) {
+      throw new MessageException("Unknown " + type.getSimpleName() + " ordinal (" + ordinal + ")");
+    }
+    return constants[ordinal];
   }
 
   @Override
@@ -224,6 +338,74 @@ public class SimpleMessageBuffer implements MessageBuffer {
     return this;
   }
 
+  @Override
+  @Nullable
+  public String readOptionalUtf() {
+    return readOptionalUtf(Integer.MAX_VALUE);
+  }
+
+  @Override
+  @Nullable
+  public String readOptionalUtf(int limit) {
+    return readBool() ? readUtf(limit) : null;
+  }
+
+  @Override
+  public int readOptionalVarInt(int absent) {
+    return readBool() ? readVarInt() : absent;
+  }
+
+  @Override
+  public int readOptionalInt(int absent) {
+    return readBool() ? readInt() : absent;
+  }
+
+  @Override
+  public long readOptionalLong(long absent) {
+    return readBool() ? readLong() : absent;
+  }
+
+  @Override
+  public MessageWriter writeOptionalUtf(@Nullable String string) {
+    return writeOptionalUtf(string, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public MessageWriter writeOptionalUtf(@Nullable String string, int limit) {
+    writeBool(string != null);
+    if (string != null) {
+      writeUtf(string, limit);
+    }
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeOptionalVarInt(boolean present, int value) {
+    writeBool(present);
+    if (present) {
+      writeVarInt(value);
+    }
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeOptionalInt(boolean present, int value) {
+    writeBool(present);
+    if (present) {
+      writeInt(value);
+    }
+    return this;
+  }
+
+  @Override
+  public MessageWriter writeOptionalLong(boolean present, long value) {
+    writeBool(present);
+    if (present) {
+      writeLong(value);
+    }
+    return this;
+  }
+
   @Override
   public <E extends Enum<E>> MessageWriter writeEnum(@NotNull Enum<E> value) {
     writeVarInt(value.ordinal());
@@ -259,16 +441,28 @@ public class SimpleMessageBuffer implements MessageBuffer {
 
   @Override
   public byte[] readByteArray() {
-    return readByteArray(this.buffer.limit());
+    return readByteArray(Integer.MAX_VALUE);
   }
 
   @Override
   public byte[] readByteArray(int limit) {
-    int count = readVarInt();
-    if (count > limit) {
-      throw new OverflowException("Byte Array", count, limit);
+    return readBytes(readLength("Byte Array", limit));
+  }
+
+  /**
+   * Reads a length prefix and validates it against {@code limit} and the remaining bytes, so a
+   * malformed message is rejected before anything is allocated for it.
+   */
+  private int readLength(String type, int limit) {
+    int length = readVarInt();
+    if (length < 0) {
+      throw new MessageException("Negative " + type + " length (" + length + ")");
+    } else if (length > limit) {
+      throw new OverflowException(type, length, limit);
+    } else if (length > this.buffer.remaining()) {
+      throw new UnderflowException(type, length, this.buffer.remaining());
     }
-    return readBytes(count);
+    return length;
   }
 
   @Override
@@ -316,6 +510,11 @@ public class SimpleMessageBuffer implements MessageBuffer {
     return this;
   }
 
+  @Override
+  public boolean isReadable() {
+    return this.buffer.hasRemaining();
+  }
+
   @Internal
   int remaining() {
     return this.buffer.remaining();
@@ -326,4 +525,26 @@ public class SimpleMessageBuffer implements MessageBuffer {
     this.buffer.flip();
     return readBytes(this.buffer.limit());
   }
+
+  /** Returns the number of bytes written so far. */
+  @Internal
+  int position() {
+    return this.buffer.position();
+  }
+
+  /** Returns the heap array backing this buffer, valid until the buffer grows or is released. */
+  @Internal
+  byte[] array() {
+    return this.buffer.array();
+  }
+
+  /** Hands pooled backing storage back to its pool. The buffer must not be used afterwards. */
+  @Internal
+  void release() {
+    if (this.pool != null) {
+      ByteBuffer released = this.buffer;
+      this.buffer = null;
+      this.pool.release(released);
+    }
+  }
 }
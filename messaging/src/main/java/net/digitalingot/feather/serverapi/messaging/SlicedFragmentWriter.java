@@ -0,0 +1,77 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes an encoded message straight into the fragment layout of a single backing array: the
+ * fragmentation header, followed by the payload with every fragment preceded by its index. Each
+ * frame is then handed out as a slice of that array without further copying.
+ */
+final class SlicedFragmentWriter extends AbstractMessageWriter {
+  private final byte[] target;
+  private final int headerLength;
+  private final int fragmentSize;
+  private final int fragments;
+  private int position;
+  private int fragment = 0;
+  private int fragmentRemaining = 0;
+
+  SlicedFragmentWriter(int dataLength, int fragmentSize) {
+    this.fragmentSize = fragmentSize;
+    this.fragments = (dataLength + fragmentSize - 1) / fragmentSize;
+    this.headerLength = MessageSizes.BYTE + MessageSizes.varInt(dataLength);
+    this.target = new byte[this.headerLength + this.fragments + dataLength];
+    SimpleMessageBuffer.of(this.target)
+        .writeUnsignedByte((short) this.fragments)
+        .writeVarInt(dataLength);
+    this.position = this.headerLength;
+  }
+
+  private void ensureFragment() {
+    if (this.fragmentRemaining == 0) {
+      this.target[this.position++] = (byte) this.fragment++;
+      this.fragmentRemaining = this.fragmentSize;
+    }
+  }
+
+  @Override
+  public MessageWriter writeByte(byte value) {
+    ensureFragment();
+    this.target[this.position++] = value;
+    this.fragmentRemaining--;
+    return this;
+  }
+
+  @Override
+  protected void writeBytes(byte[] bytes, int offset, int length) {
+    while (length > 0) {
+      ensureFragment();
+      int chunk = Math.min(length, this.fragmentRemaining);
+      System.arraycopy(bytes, offset, this.target, this.position, chunk);
+      this.position += chunk;
+      this.fragmentRemaining -= chunk;
+      offset += chunk;
+      length -= chunk;
+    }
+  }
+
+  /** Returns the header and the fragments written, once the whole payload has been. */
+  FramedMessage finish() {
+    if (this.position != this.target.length) {
+      throw new IllegalStateException("Message does not match its encoded size");
+    }
+    List<ByteBuffer> frames = new ArrayList<>(this.fragments + 1);
+    frames.add(slice(0, this.headerLength));
+    for (int iii = 0; iii < this.fragments; ++iii) {
+      int offset = this.headerLength + iii * (this.fragmentSize + 1);
+      frames.add(slice(offset, Math.min(this.fragmentSize + 1, this.target.length - offset)));
+    }
+    return FramedMessage.fragmented(frames);
+  }
+
+  private ByteBuffer slice(int offset, int length) {
+    return ByteBuffer.wrap(this.target, offset, length).slice();
+  }
+}
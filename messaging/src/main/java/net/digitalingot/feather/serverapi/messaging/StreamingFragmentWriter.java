@@ -0,0 +1,70 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import java.util.function.Consumer;
+
+/**
+ * Writes an encoded message into fixed-size fragment chunks, handing every chunk to the sink as
+ * soon as it is full. At most one partially filled chunk is held at any time.
+ */
+final class StreamingFragmentWriter extends AbstractMessageWriter {
+  private final Consumer<byte[]> sink;
+  private final int fragmentSize;
+  private int unallocated;
+  private byte[] chunk;
+  private int chunkPosition;
+  private int fragment = 0;
+
+  StreamingFragmentWriter(int dataLength, int fragmentSize, Consumer<byte[]> sink) {
+    this.unallocated = dataLength;
+    this.fragmentSize = fragmentSize;
+    this.sink = sink;
+  }
+
+  private void ensureChunk() {
+    if (this.chunk == null) {
+      if (this.unallocated == 0) {
+        throw new IllegalStateException("Message exceeds its encoded size");
+      }
+      int length = Math.min(this.fragmentSize, this.unallocated);
+      this.unallocated -= length;
+      this.chunk = new byte[length + 1];
+      this.chunk[0] = (byte) this.fragment++;
+      this.chunkPosition = 1;
+    }
+  }
+
+  private void emitIfFull() {
+    if (this.chunkPosition == this.chunk.length) {
+      byte[] full = this.chunk;
+      this.chunk = null;
+      this.sink.accept(full);
+    }
+  }
+
+  @Override
+  public MessageWriter writeByte(byte value) {
+    ensureChunk();
+    this.chunk[this.chunkPosition++] = value;
+    emitIfFull();
+    return this;
+  }
+
+  @Override
+  protected void writeBytes(byte[] bytes, int offset, int length) {
+    while (length > 0) {
+      ensureChunk();
+      int count = Math.min(length, this.chunk.length - this.chunkPosition);
+      System.arraycopy(bytes, offset, this.chunk, this.chunkPosition, count);
+      this.chunkPosition += count;
+      offset += count;
+      length -= count;
+      emitIfFull();
+    }
+  }
+
+  void finish() {
+    if (this.chunk != null || this.unallocated != 0) {
+      throw new IllegalStateException("Message fell short of its encoded size");
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Encodes strings as UTF-8 straight into a destination array, producing the same bytes as {@link
+ * String#getBytes(java.nio.charset.Charset)} without the intermediate array.
+ */
+final class Utf8 {
+  private static final byte REPLACEMENT = (byte) '?';
+
+  private Utf8() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Returns whether every char of {@code value} is ASCII, in which case its UTF-8 encoding is one
+   * byte per char.
+   */
+  static boolean isAscii(@NotNull String value) {
+    int bits = 0;
+    for (int iii = 0, length = value.length(); iii < length; iii++) {
+      bits |= value.charAt(iii);
+    }
+    return bits < 0x80;
+  }
+
+  /**
+   * Writes the ASCII string {@code value} to {@code dst} starting at {@code offset}. On compact
+   * strings this is a plain array copy.
+   */
+  @SuppressWarnings("deprecation")
+  static void encodeAscii(@NotNull String value, byte @NotNull [] dst, int offset) {
+    value.getBytes(0, value.length(), dst, offset);
+  }
+
+  /**
+   * Writes {@code value} to {@code dst} starting at {@code offset}. The destination must have room
+   * for {@link MessageSizes#utf8Length(CharSequence)} bytes.
+   *
+   * @return the number of bytes written
+   */
+  static int encode(@NotNull String value, byte @NotNull [] dst, int offset) {
+    int length = value.length();
+    int position = offset;
+
+    for (int iii = 0; iii < length; iii++) {
+      char c = value.charAt(iii);
+      if (c < 0x80) {
+        dst[position++] = (byte) c;
+      } else if (c < 0x800) {
+        dst[position++] = (byte) (0xC0 | (c >> 6));
+        dst[position++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && iii + 1 < length
+          && Character.isLowSurrogate(value.charAt(iii + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++iii));
+        dst[position++] = (byte) (0xF0 | (codePoint >> 18));
+        dst[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        dst[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        dst[position++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        dst[position++] = REPLACEMENT;
+      } else {
+        dst[position++] = (byte) (0xE0 | (c >> 12));
+        dst[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        dst[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+
+    return position - offset;
+  }
+}
@@ -0,0 +1,49 @@
+package net.digitalingot.feather.serverapi.messaging;
+
+/**
+ * Writes a single fragment of an encoded message: of everything written, only the bytes at the
+ * encoded offsets covered by the fragment are kept, following the index byte at the start of the
+ * target. Bytes outside of it are skipped without being copied.
+ */
+final class WindowedFragmentWriter extends AbstractMessageWriter {
+  private final byte[] target;
+  private final int start;
+  private final int end;
+  private int position = 0;
+
+  WindowedFragmentWriter(byte[] target, int start) {
+    this.target = target;
+    this.start = start;
+    this.end = start + target.length - MessageSizes.BYTE;
+  }
+
+  @Override
+  public MessageWriter writeByte(byte value) {
+    if (this.position >= this.start && this.position < this.end) {
+      this.target[this.position - this.start + MessageSizes.BYTE] = value;
+    }
+    this.position++;
+    return this;
+  }
+
+  @Override
+  protected void writeBytes(byte[] bytes, int offset, int length) {
+    int from = Math.max(this.position, this.start);
+    int to = Math.min(this.position + length, this.end);
+    if (from < to) {
+      System.arraycopy(
+          bytes,
+          offset + from - this.position,
+          this.target,
+          from - this.start + MessageSizes.BYTE,
+          to - from);
+    }
+    this.position += length;
+  }
+
+  void finish(int dataLength) {
+    if (this.position != dataLength) {
+      throw new IllegalStateException("Message does not match its encoded size");
+    }
+  }
+}
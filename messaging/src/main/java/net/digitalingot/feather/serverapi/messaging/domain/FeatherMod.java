@@ -2,6 +2,7 @@ package net.digitalingot.feather.serverapi.messaging.domain;
 
 import java.util.Objects;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import org.jetbrains.annotations.ApiStatus.Internal;
 import org.jetbrains.annotations.NotNull;
@@ -9,6 +10,10 @@ import org.jetbrains.annotations.NotNull;
 public class FeatherMod {
   @Internal public static final MessageReader.Decoder<FeatherMod> DECODER = new Decoder();
   @Internal public static final MessageWriter.Encoder<FeatherMod> ENCODER = new Encoder();
+  @Internal public static final MessageSizes.Sizer<FeatherMod> SIZER = new Sizer();
+
+  /** The most mods a client may list in a single message. */
+  @Internal public static final int MAX_MODS = 1024;
 
   @NotNull public final String name;
 
@@ -56,4 +61,13 @@ public class FeatherMod {
       writer.writeUtf(featherMod.getName());
     }
   }
+
+  @Internal
+  private static class Sizer implements MessageSizes.Sizer<FeatherMod> {
+
+    @Override
+    public int sizeOf(FeatherMod featherMod) {
+      return MessageSizes.utf(featherMod.getName());
+    }
+  }
 }
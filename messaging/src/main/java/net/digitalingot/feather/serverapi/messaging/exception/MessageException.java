@@ -7,4 +7,8 @@ public class MessageException extends RuntimeException {
   public MessageException(String message) {
     super(message);
   }
+
+  public MessageException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
@@ -0,0 +1,12 @@
+package net.digitalingot.feather.serverapi.messaging.exception;
+
+public class UnderflowException extends MessageException {
+
+  public UnderflowException(String message) {
+    super(message);
+  }
+
+  public UnderflowException(String type, int size, int remaining) {
+    this(type + " exceeds remaining bytes (" + size + " > " + remaining + ")");
+  }
+}
@@ -0,0 +1,76 @@
+package net.digitalingot.feather.serverapi.messaging.messages.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
+import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageBatcher;
+import net.digitalingot.feather.serverapi.messaging.MessageCapabilities;
+import net.digitalingot.feather.serverapi.messaging.MessageDecoder;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
+import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
+import net.digitalingot.feather.serverapi.messaging.MessageWriter;
+import net.digitalingot.feather.serverapi.messaging.exception.MessageException;
+
+/**
+ * Several encoded client-bound messages sent in a single frame, only sent once {@link
+ * MessageCapabilities#BATCHING} has been negotiated. The carried messages are handled in order.
+ *
+ * @see MessageBatcher
+ */
+@MessageId(16)
+public class S2CBatch implements Message<ClientMessageHandler> {
+  private final List<byte[]> messages;
+
+  public S2CBatch(List<byte[]> messages) {
+    this.messages = messages;
+  }
+
+  public S2CBatch(MessageReader reader) {
+    this.messages = reader.readList(MessageReader::readByteArray);
+  }
+
+  @Override
+  public void write(MessageWriter writer) {
+    writer.writeCollection(this.messages, MessageWriter::writeByteArray);
+  }
+
+  @Override
+  public int getEncodedSize() {
+    int size = MessageSizes.varInt(this.messages.size());
+    for (byte[] message : this.messages) {
+      size += MessageSizes.byteArray(message);
+    }
+    return size;
+  }
+
+  @Override
+  public void handle(ClientMessageHandler handler) {
+    for (Message<ClientMessageHandler> message : decode()) {
+      message.handle(handler);
+    }
+  }
+
+  /**
+   * Decodes the carried messages.
+   *
+   * @return the messages in the order they were sent
+   * @throws MessageException if a carried message is malformed or itself a batch
+   */
+  public List<Message<ClientMessageHandler>> decode() {
+    List<Message<ClientMessageHandler>> decoded = new ArrayList<>(this.messages.size());
+    for (byte[] message : this.messages) {
+      Message<ClientMessageHandler> decodedMessage = MessageDecoder.CLIENT_BOUND.decode(message);
+      if (decodedMessage instanceof S2CBatch) {
+        throw new MessageException("Nested message batch");
+      }
+      decoded.add(decodedMessage);
+    }
+    return decoded;
+  }
+
+  public List<byte[]> getMessages() {
+    return this.messages;
+  }
+}
@@ -2,9 +2,11 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 
+@MessageId(13)
 public class S2CClearDiscordActivity implements Message<ClientMessageHandler> {
 
   public S2CClearDiscordActivity() {}
@@ -14,8 +16,19 @@ public class S2CClearDiscordActivity implements Message<ClientMessageHandler> {
   @Override
   public void write(MessageWriter writer) {}
 
+  @Override
+  public int getEncodedSize() {
+    return 0;
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
   }
+
+  @Override
+  public Object getCoalescingKey() {
+    // Clearing the activity overwrites the same state as setting it.
+    return S2CSetDiscordActivity.class;
+  }
 }
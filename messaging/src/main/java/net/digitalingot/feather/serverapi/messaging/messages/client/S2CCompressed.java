@@ -0,0 +1,65 @@
+package net.digitalingot.feather.serverapi.messaging.messages.client;
+
+import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
+import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageCapabilities;
+import net.digitalingot.feather.serverapi.messaging.MessageCompressor;
+import net.digitalingot.feather.serverapi.messaging.MessageDecoder;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
+import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
+import net.digitalingot.feather.serverapi.messaging.MessageWriter;
+
+/**
+ * A deflated client-bound message, only sent once {@link MessageCapabilities#COMPRESSION} has been
+ * negotiated. {@link MessageDecoder} unwraps it transparently, so handlers only ever see the
+ * message it carries.
+ */
+@MessageId(15)
+public class S2CCompressed implements Message<ClientMessageHandler> {
+  private final int uncompressedLength;
+  private final byte[] data;
+
+  public S2CCompressed(int uncompressedLength, byte[] data) {
+    this.uncompressedLength = uncompressedLength;
+    this.data = data;
+  }
+
+  public S2CCompressed(MessageReader reader) {
+    this.uncompressedLength = reader.readVarInt();
+    this.data = reader.readByteArray();
+  }
+
+  @Override
+  public void write(MessageWriter writer) {
+    writer.writeVarInt(this.uncompressedLength);
+    writer.writeByteArray(this.data);
+  }
+
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.varInt(this.uncompressedLength) + MessageSizes.byteArray(this.data);
+  }
+
+  @Override
+  public void handle(ClientMessageHandler handler) {
+    MessageDecoder.CLIENT_BOUND.decode(decompress()).handle(handler);
+  }
+
+  /**
+   * Inflates the carried message.
+   *
+   * @return the encoded message, including its id
+   */
+  public byte[] decompress() {
+    return MessageCompressor.SHARED.decompress(this.data, this.uncompressedLength);
+  }
+
+  public int getUncompressedLength() {
+    return this.uncompressedLength;
+  }
+
+  public byte[] getData() {
+    return this.data;
+  }
+}
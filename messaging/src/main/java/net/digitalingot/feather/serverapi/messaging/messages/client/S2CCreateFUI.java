@@ -2,10 +2,13 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import org.jetbrains.annotations.NotNull;
 
+@MessageId(1)
 public class S2CCreateFUI implements Message<ClientMessageHandler> {
   @NotNull private final String frame;
   @NotNull private final String url;
@@ -26,6 +29,11 @@ public class S2CCreateFUI implements Message<ClientMessageHandler> {
     writer.writeUtf(this.url);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.utf(this.frame) + MessageSizes.utf(this.url);
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
@@ -2,10 +2,13 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import org.jetbrains.annotations.NotNull;
 
+@MessageId(2)
 public class S2CDestroyFUI implements Message<ClientMessageHandler> {
   @NotNull private final String frame;
 
@@ -22,6 +25,11 @@ public class S2CDestroyFUI implements Message<ClientMessageHandler> {
     writer.writeUtf(this.frame);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.utf(this.frame);
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
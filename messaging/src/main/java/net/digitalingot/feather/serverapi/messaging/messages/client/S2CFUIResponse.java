@@ -2,10 +2,14 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
+import net.digitalingot.feather.serverapi.messaging.MessagePriority;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import org.jetbrains.annotations.NotNull;
 
+@MessageId(5)
 public class S2CFUIResponse implements Message<ClientMessageHandler> {
   private final int id;
   private final boolean found;
@@ -34,11 +38,22 @@ public class S2CFUIResponse implements Message<ClientMessageHandler> {
     writer.writeUtf(this.payload);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.varInt(this.id) + MessageSizes.BOOL + MessageSizes.utf(this.payload);
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
   }
 
+  @NotNull
+  @Override
+  public MessagePriority getPriority() {
+    return MessagePriority.URGENT;
+  }
+
   public int getId() {
     return this.id;
   }
@@ -2,9 +2,12 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 
+@MessageId(6)
 public class S2CGetEnabledMods implements Message<ClientMessageHandler> {
   private final int id;
 
@@ -21,6 +24,11 @@ public class S2CGetEnabledMods implements Message<ClientMessageHandler> {
     writer.writeVarInt(this.id);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.varInt(this.id);
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
@@ -2,24 +2,59 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageCapabilities;
 import net.digitalingot.feather.serverapi.messaging.MessageConstants;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 
+@MessageId(0)
 public class S2CHandshake implements Message<ClientMessageHandler> {
   private final int protocolVersion;
+  private final int capabilities;
+  // The largest client-bound frame; 0 if unspecified, meaning the legacy frame size.
+  private final int maxFrameSize;
 
   public S2CHandshake() {
+    this(MessageCapabilities.NONE);
+  }
+
+  public S2CHandshake(int capabilities) {
+    this(capabilities, 0);
+  }
+
+  public S2CHandshake(int capabilities, int maxFrameSize) {
     this.protocolVersion = MessageConstants.VERSION;
+    this.capabilities = capabilities;
+    this.maxFrameSize = maxFrameSize;
   }
 
   public S2CHandshake(MessageReader reader) {
     this.protocolVersion = reader.readVarInt();
+    // Older peers end the message after the protocol version or the capabilities.
+    this.capabilities = reader.isReadable() ? reader.readVarInt() : MessageCapabilities.NONE;
+    this.maxFrameSize = reader.isReadable() ? reader.readVarInt() : 0;
   }
 
   @Override
   public void write(MessageWriter writer) {
     writer.writeVarInt(this.protocolVersion);
+    if (this.capabilities != MessageCapabilities.NONE || this.maxFrameSize != 0) {
+      writer.writeVarInt(this.capabilities);
+    }
+    if (this.maxFrameSize != 0) {
+      writer.writeVarInt(this.maxFrameSize);
+    }
+  }
+
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.varInt(this.protocolVersion)
+        + (this.capabilities != MessageCapabilities.NONE || this.maxFrameSize != 0
+            ? MessageSizes.varInt(this.capabilities)
+            : 0)
+        + (this.maxFrameSize != 0 ? MessageSizes.varInt(this.maxFrameSize) : 0);
   }
 
   @Override
@@ -28,4 +63,12 @@ public class S2CHandshake implements Message<ClientMessageHandler> {
   public int getProtocolVersion() {
     return this.protocolVersion;
   }
+
+  public int getCapabilities() {
+    return this.capabilities;
+  }
+
+  public int getMaxFrameSize() {
+    return this.maxFrameSize;
+  }
 }
@@ -2,9 +2,12 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 
+@MessageId(14)
 public class S2CMissPenaltyState implements Message<ClientMessageHandler> {
   private final boolean missPenalty;
 
@@ -21,11 +24,21 @@ public class S2CMissPenaltyState implements Message<ClientMessageHandler> {
     writer.writeBool(this.missPenalty);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.BOOL;
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
   }
 
+  @Override
+  public Object getCoalescingKey() {
+    return S2CMissPenaltyState.class;
+  }
+
   public boolean getMissPenalty() {
     return this.missPenalty;
   }
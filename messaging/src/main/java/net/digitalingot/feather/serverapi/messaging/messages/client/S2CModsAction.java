@@ -1,12 +1,17 @@
 package net.digitalingot.feather.serverapi.messaging.messages.client;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import net.digitalingot.feather.serverapi.messaging.domain.FeatherMod;
 
+@MessageId(7)
 public class S2CModsAction implements Message<ClientMessageHandler> {
   private final Action action;
   private final Collection<FeatherMod> mods;
@@ -27,11 +32,25 @@ public class S2CModsAction implements Message<ClientMessageHandler> {
     writer.writeCollection(this.mods, FeatherMod.ENCODER);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.enumValue(this.action)
+        + MessageSizes.collection(this.mods, FeatherMod.SIZER);
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
   }
 
+  @Override
+  public Object getCoalescingKey() {
+    // Blocking and enabling are independent states of the same mods.
+    Action state =
+        this.action == Action.BLOCK || this.action == Action.UNBLOCK ? Action.BLOCK : Action.ENABLE;
+    return Arrays.asList(S2CModsAction.class, state, new HashSet<>(this.mods));
+  }
+
   public Action getAction() {
     return this.action;
   }
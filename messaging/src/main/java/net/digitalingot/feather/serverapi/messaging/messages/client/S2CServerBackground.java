@@ -2,9 +2,14 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
+import net.digitalingot.feather.serverapi.messaging.MessagePriority;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
+import org.jetbrains.annotations.NotNull;
 
+@MessageId(11)
 public class S2CServerBackground implements Message<ClientMessageHandler> {
 
   private final Action action;
@@ -26,11 +31,22 @@ public class S2CServerBackground implements Message<ClientMessageHandler> {
     writer.writeByteArray(this.data);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.enumValue(this.action) + MessageSizes.byteArray(this.data);
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
   }
 
+  @NotNull
+  @Override
+  public MessagePriority getPriority() {
+    return MessagePriority.BULK;
+  }
+
   public Action getAction() {
     return this.action;
   }
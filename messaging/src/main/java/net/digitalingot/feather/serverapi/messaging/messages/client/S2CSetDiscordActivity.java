@@ -3,26 +3,26 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 import java.util.Optional;
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import org.jetbrains.annotations.Nullable;
 
+@MessageId(12)
 public class S2CSetDiscordActivity implements Message<ClientMessageHandler> {
 
   private static final int LIMIT = 127;
-
-  private static final MessageWriter.Encoder<String> LIMITED_STRING_ENCODER =
-      (writer, value) -> writer.writeUtf(value, LIMIT);
-  private static final MessageReader.Decoder<String> LIMITED_STRING_DECODER =
-      reader -> reader.readUtf(LIMIT);
+  private static final long ABSENT = Long.MIN_VALUE;
 
   @Nullable private final String image;
   @Nullable private final String imageText;
   @Nullable private final String state;
   @Nullable private final String details;
-  @Nullable private final Long partyData; // Combined partySize and partyMax
-  @Nullable private final Long startTimestamp;
-  @Nullable private final Long endTimestamp;
+  // The long fields hold ABSENT when not set.
+  private final long partyData; // Combined partySize and partyMax
+  private final long startTimestamp;
+  private final long endTimestamp;
 
   public S2CSetDiscordActivity(
       @Nullable String image,
@@ -38,30 +38,41 @@ public class S2CSetDiscordActivity implements Message<ClientMessageHandler> {
     this.state = state;
     this.details = details;
     this.partyData =
-        (partySize != null && partyMax != null) ? encodePartyData(partySize, partyMax) : null;
-    this.startTimestamp = startTimestamp;
-    this.endTimestamp = endTimestamp;
+        (partySize != null && partyMax != null) ? encodePartyData(partySize, partyMax) : ABSENT;
+    this.startTimestamp = startTimestamp != null ? startTimestamp : ABSENT;
+    this.endTimestamp = endTimestamp != null ? endTimestamp : ABSENT;
   }
 
   public S2CSetDiscordActivity(MessageReader reader) {
-    this.image = reader.readOptional(LIMITED_STRING_DECODER).orElse(null);
-    this.imageText = reader.readOptional(LIMITED_STRING_DECODER).orElse(null);
-    this.state = reader.readOptional(LIMITED_STRING_DECODER).orElse(null);
-    this.details = reader.readOptional(LIMITED_STRING_DECODER).orElse(null);
-    this.partyData = reader.readOptional(MessageReader::readLong).orElse(null);
-    this.startTimestamp = reader.readOptional(MessageReader::readLong).orElse(null);
-    this.endTimestamp = reader.readOptional(MessageReader::readLong).orElse(null);
+    this.image = reader.readOptionalUtf(LIMIT);
+    this.imageText = reader.readOptionalUtf(LIMIT);
+    this.state = reader.readOptionalUtf(LIMIT);
+    this.details = reader.readOptionalUtf(LIMIT);
+    this.partyData = reader.readOptionalLong(ABSENT);
+    this.startTimestamp = reader.readOptionalLong(ABSENT);
+    this.endTimestamp = reader.readOptionalLong(ABSENT);
   }
 
   @Override
   public void write(MessageWriter writer) {
-    writer.writeOptional(this.image, LIMITED_STRING_ENCODER);
-    writer.writeOptional(this.imageText, LIMITED_STRING_ENCODER);
-    writer.writeOptional(this.state, LIMITED_STRING_ENCODER);
-    writer.writeOptional(this.details, LIMITED_STRING_ENCODER);
-    writer.writeOptional(this.partyData, MessageWriter::writeLong);
-    writer.writeOptional(this.startTimestamp, MessageWriter::writeLong);
-    writer.writeOptional(this.endTimestamp, MessageWriter::writeLong);
+    writer.writeOptionalUtf(this.image, LIMIT);
+    writer.writeOptionalUtf(this.imageText, LIMIT);
+    writer.writeOptionalUtf(this.state, LIMIT);
+    writer.writeOptionalUtf(this.details, LIMIT);
+    writer.writeOptionalLong(this.partyData != ABSENT, this.partyData);
+    writer.writeOptionalLong(this.startTimestamp != ABSENT, this.startTimestamp);
+    writer.writeOptionalLong(this.endTimestamp != ABSENT, this.endTimestamp);
+  }
+
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.optionalUtf(this.image)
+        + MessageSizes.optionalUtf(this.imageText)
+        + MessageSizes.optionalUtf(this.state)
+        + MessageSizes.optionalUtf(this.details)
+        + MessageSizes.optionalLong(this.partyData != ABSENT)
+        + MessageSizes.optionalLong(this.startTimestamp != ABSENT)
+        + MessageSizes.optionalLong(this.endTimestamp != ABSENT);
   }
 
   @Override
@@ -69,6 +80,11 @@ public class S2CSetDiscordActivity implements Message<ClientMessageHandler> {
     handler.handle(this);
   }
 
+  @Override
+  public Object getCoalescingKey() {
+    return S2CSetDiscordActivity.class;
+  }
+
   public Optional<String> getImage() {
     return Optional.ofNullable(this.image);
   }
@@ -86,19 +102,23 @@ public class S2CSetDiscordActivity implements Message<ClientMessageHandler> {
   }
 
   public Optional<Integer> getPartySize() {
-    return Optional.ofNullable(this.partyData).map(S2CSetDiscordActivity::getPartySizeFromData);
+    return this.partyData != ABSENT
+        ? Optional.of(getPartySizeFromData(this.partyData))
+        : Optional.empty();
   }
 
   public Optional<Integer> getPartyMax() {
-    return Optional.ofNullable(this.partyData).map(S2CSetDiscordActivity::getPartyMaxFromData);
+    return this.partyData != ABSENT
+        ? Optional.of(getPartyMaxFromData(this.partyData))
+        : Optional.empty();
   }
 
   public Optional<Long> getStartTimestamp() {
-    return Optional.ofNullable(this.startTimestamp);
+    return this.startTimestamp != ABSENT ? Optional.of(this.startTimestamp) : Optional.empty();
   }
 
   public Optional<Long> getEndTimestamp() {
-    return Optional.ofNullable(this.endTimestamp);
+    return this.endTimestamp != ABSENT ? Optional.of(this.endTimestamp) : Optional.empty();
   }
 
   /**
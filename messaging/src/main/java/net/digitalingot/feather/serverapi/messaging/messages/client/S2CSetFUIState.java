@@ -1,11 +1,15 @@
 package net.digitalingot.feather.serverapi.messaging.messages.client;
 
+import java.util.Arrays;
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import org.jetbrains.annotations.NotNull;
 
+@MessageId(3)
 public class S2CSetFUIState implements Message<ClientMessageHandler> {
   @NotNull private final String frame;
   @NotNull private final Action action;
@@ -31,11 +35,21 @@ public class S2CSetFUIState implements Message<ClientMessageHandler> {
     writer.writeBool(this.state);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.utf(this.frame) + MessageSizes.enumValue(this.action) + MessageSizes.BOOL;
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
   }
 
+  @Override
+  public Object getCoalescingKey() {
+    return Arrays.asList(S2CSetFUIState.class, this.frame, this.action);
+  }
+
   @NotNull
   public String getFrame() {
     return this.frame;
@@ -4,10 +4,13 @@ import java.util.Optional;
 import java.util.UUID;
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import org.jetbrains.annotations.Nullable;
 
+@MessageId(8)
 public class S2CWaypointCreate implements Message<ClientMessageHandler> {
 
   private final UUID id;
@@ -18,7 +21,7 @@ public class S2CWaypointCreate implements Message<ClientMessageHandler> {
   private final boolean chroma;
   private final int color;
   @Nullable private final String name;
-  @Nullable private final Integer duration;
+  private final int duration; // 0 if the waypoint does not expire
 
   public S2CWaypointCreate(UUID id, UUID worldId, int posX, int posY, int posZ, int color) {
     this(id, worldId, posX, posY, posZ, color, null);
@@ -80,7 +83,7 @@ public class S2CWaypointCreate implements Message<ClientMessageHandler> {
     this.chroma = chroma;
     this.color = color;
     this.name = name;
-    this.duration = duration != null && duration > 0 ? duration : null;
+    this.duration = duration != null && duration > 0 ? duration : 0;
   }
 
   public S2CWaypointCreate(MessageReader reader) {
@@ -94,8 +97,8 @@ public class S2CWaypointCreate implements Message<ClientMessageHandler> {
     } else {
       this.color = 0;
     }
-    this.name = reader.readOptional(MessageReader::readUtf).orElse(null);
-    this.duration = reader.readOptional(MessageReader::readVarInt).orElse(null);
+    this.name = reader.readOptionalUtf();
+    this.duration = reader.readOptionalVarInt(0);
   }
 
   @Override
@@ -109,8 +112,20 @@ public class S2CWaypointCreate implements Message<ClientMessageHandler> {
     if (!this.chroma) {
       writer.writeInt(this.color);
     }
-    writer.writeOptional(this.name, MessageWriter::writeUtf);
-    writer.writeOptional(this.duration, MessageWriter::writeVarInt);
+    writer.writeOptionalUtf(this.name);
+    writer.writeOptionalVarInt(this.duration > 0, this.duration);
+  }
+
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.UUID * 2
+        + MessageSizes.varInt(this.posX)
+        + MessageSizes.varInt(this.posY)
+        + MessageSizes.varInt(this.posZ)
+        + MessageSizes.BOOL
+        + (!this.chroma ? MessageSizes.INT : 0)
+        + MessageSizes.optionalUtf(this.name)
+        + MessageSizes.optionalVarInt(this.duration > 0, this.duration);
   }
 
   @Override
@@ -151,6 +166,6 @@ public class S2CWaypointCreate implements Message<ClientMessageHandler> {
   }
 
   public Optional<Integer> getDuration() {
-    return Optional.ofNullable(this.duration);
+    return this.duration > 0 ? Optional.of(this.duration) : Optional.empty();
   }
 }
@@ -5,9 +5,12 @@ import java.util.Collections;
 import java.util.UUID;
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 
+@MessageId(9)
 public class S2CWaypointDestroy implements Message<ClientMessageHandler> {
   private final Collection<UUID> ids;
 
@@ -28,6 +31,11 @@ public class S2CWaypointDestroy implements Message<ClientMessageHandler> {
     writer.writeCollection(this.ids, MessageWriter::writeUUID);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.uuids(this.ids);
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
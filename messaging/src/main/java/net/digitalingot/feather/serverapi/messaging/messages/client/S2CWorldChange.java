@@ -3,9 +3,12 @@ package net.digitalingot.feather.serverapi.messaging.messages.client;
 import java.util.UUID;
 import net.digitalingot.feather.serverapi.messaging.ClientMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 
+@MessageId(10)
 public class S2CWorldChange implements Message<ClientMessageHandler> {
 
   private final UUID worldId;
@@ -23,6 +26,11 @@ public class S2CWorldChange implements Message<ClientMessageHandler> {
     writer.writeUUID(this.worldId);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.UUID;
+  }
+
   @Override
   public void handle(ClientMessageHandler handler) {
     handler.handle(this);
@@ -2,12 +2,15 @@ package net.digitalingot.feather.serverapi.messaging.messages.server;
 
 import java.util.Collection;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.domain.FeatherMod;
 import net.digitalingot.feather.serverapi.messaging.domain.Platform;
 
+@MessageId(1)
 public class C2SClientHello implements Message<ServerMessageHandler> {
   private final Platform platform;
   private final Collection<FeatherMod> featherMods;
@@ -19,7 +22,7 @@ public class C2SClientHello implements Message<ServerMessageHandler> {
 
   public C2SClientHello(MessageReader reader) {
     this.platform = reader.readEnum(Platform.class);
-    this.featherMods = reader.readList(FeatherMod.DECODER);
+    this.featherMods = reader.readList(FeatherMod.DECODER, FeatherMod.MAX_MODS);
   }
 
   @Override
@@ -28,6 +31,12 @@ public class C2SClientHello implements Message<ServerMessageHandler> {
     writer.writeCollection(this.featherMods, FeatherMod.ENCODER);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.enumValue(this.platform)
+        + MessageSizes.collection(this.featherMods, FeatherMod.SIZER);
+  }
+
   @Override
   public void handle(ServerMessageHandler handler) {}
 
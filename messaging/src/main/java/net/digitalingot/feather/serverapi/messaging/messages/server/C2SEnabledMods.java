@@ -2,11 +2,14 @@ package net.digitalingot.feather.serverapi.messaging.messages.server;
 
 import java.util.Collection;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.domain.FeatherMod;
 
+@MessageId(5)
 public class C2SEnabledMods implements Message<ServerMessageHandler> {
   private final int id;
   private final Collection<FeatherMod> mods;
@@ -18,7 +21,7 @@ public class C2SEnabledMods implements Message<ServerMessageHandler> {
 
   public C2SEnabledMods(MessageReader reader) {
     this.id = reader.readVarInt();
-    this.mods = reader.readList(FeatherMod.DECODER);
+    this.mods = reader.readList(FeatherMod.DECODER, FeatherMod.MAX_MODS);
   }
 
   @Override
@@ -27,6 +30,11 @@ public class C2SEnabledMods implements Message<ServerMessageHandler> {
     writer.writeCollection(this.mods, FeatherMod.ENCODER);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.varInt(this.id) + MessageSizes.collection(this.mods, FeatherMod.SIZER);
+  }
+
   @Override
   public void handle(ServerMessageHandler handler) {
     handler.handle(this);
@@ -1,11 +1,14 @@
 package net.digitalingot.feather.serverapi.messaging.messages.server;
 
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 import org.jetbrains.annotations.NotNull;
 
+@MessageId(3)
 public class C2SFUILoadError implements Message<ServerMessageHandler> {
 
   @NotNull private final String frame;
@@ -17,7 +20,7 @@ public class C2SFUILoadError implements Message<ServerMessageHandler> {
   }
 
   public C2SFUILoadError(MessageReader reader) {
-    this.frame = reader.readUtf(64);
+    this.frame = reader.readInternedUtf(64);
     this.errorText = reader.readUtf(64);
   }
 
@@ -27,6 +30,11 @@ public class C2SFUILoadError implements Message<ServerMessageHandler> {
     writer.writeUtf(this.errorText);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.utf(this.frame) + MessageSizes.utf(this.errorText);
+  }
+
   @Override
   public void handle(ServerMessageHandler handler) {
     handler.handle(this);
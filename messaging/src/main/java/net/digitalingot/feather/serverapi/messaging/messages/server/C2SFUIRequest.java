@@ -1,31 +1,36 @@
 package net.digitalingot.feather.serverapi.messaging.messages.server;
 
+import net.digitalingot.feather.serverapi.messaging.LazyUtf;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 import org.jetbrains.annotations.NotNull;
 
+@MessageId(4)
 public class C2SFUIRequest implements Message<ServerMessageHandler> {
 
   private final int id;
   @NotNull private final String frame;
   @NotNull private final String path;
-  @NotNull private final String payload;
+  // Only routed requests need their payload, so it is decoded on first access.
+  @NotNull private final LazyUtf payload;
 
   public C2SFUIRequest(
       int id, @NotNull String frame, @NotNull String path, @NotNull String payload) {
     this.id = id;
     this.frame = frame;
     this.path = path;
-    this.payload = payload;
+    this.payload = LazyUtf.of(payload);
   }
 
   public C2SFUIRequest(MessageReader reader) {
     this.id = reader.readVarInt();
-    this.frame = reader.readUtf(64);
-    this.path = reader.readUtf(64);
-    this.payload = reader.readUtf();
+    this.frame = reader.readInternedUtf(64);
+    this.path = reader.readInternedUtf(64);
+    this.payload = reader.readLazyUtf(Integer.MAX_VALUE);
   }
 
   @Override
@@ -33,7 +38,15 @@ public class C2SFUIRequest implements Message<ServerMessageHandler> {
     writer.writeVarInt(this.id);
     writer.writeUtf(this.frame);
     writer.writeUtf(this.path);
-    writer.writeUtf(this.payload);
+    writer.writeUtf(this.payload.toString());
+  }
+
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.varInt(this.id)
+        + MessageSizes.utf(this.frame)
+        + MessageSizes.utf(this.path)
+        + this.payload.getEncodedSize();
   }
 
   @Override
@@ -57,6 +70,16 @@ public class C2SFUIRequest implements Message<ServerMessageHandler> {
 
   @NotNull
   public String getPayload() {
+    return this.payload.toString();
+  }
+
+  /**
+   * Returns the payload without decoding it yet, to pass it on to whoever may need it.
+   *
+   * @return the lazily decoded payload
+   */
+  @NotNull
+  public LazyUtf getLazyPayload() {
     return this.payload;
   }
 }
@@ -1,11 +1,14 @@
 package net.digitalingot.feather.serverapi.messaging.messages.server;
 
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 import org.jetbrains.annotations.NotNull;
 
+@MessageId(2)
 public class C2SFUIStateChange implements Message<ServerMessageHandler> {
   @NotNull private final String frame;
   @NotNull private final StateType type;
@@ -16,7 +19,7 @@ public class C2SFUIStateChange implements Message<ServerMessageHandler> {
   }
 
   public C2SFUIStateChange(MessageReader reader) {
-    this.frame = reader.readUtf(64);
+    this.frame = reader.readInternedUtf(64);
     this.type = reader.readEnum(StateType.class);
   }
 
@@ -26,6 +29,11 @@ public class C2SFUIStateChange implements Message<ServerMessageHandler> {
     writer.writeEnum(this.type);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.utf(this.frame) + MessageSizes.enumValue(this.type);
+  }
+
   @Override
   public void handle(ServerMessageHandler handler) {
     handler.handle(this);
@@ -3,6 +3,7 @@ package net.digitalingot.feather.serverapi.messaging.messages.server;
 import java.util.Collection;
 import net.digitalingot.feather.serverapi.messaging.Message;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
+import net.digitalingot.feather.serverapi.messaging.MessageSizes;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.domain.FeatherMod;
@@ -16,7 +17,7 @@ public class C2SFeatherModsResponse implements Message<ServerMessageHandler> {
   }
 
   public C2SFeatherModsResponse(MessageReader reader) {
-    this.featherMods = reader.readList(FeatherMod.DECODER);
+    this.featherMods = reader.readList(FeatherMod.DECODER, FeatherMod.MAX_MODS);
   }
 
   @Override
@@ -24,6 +25,11 @@ public class C2SFeatherModsResponse implements Message<ServerMessageHandler> {
     writer.writeCollection(this.featherMods, FeatherMod.ENCODER);
   }
 
+  @Override
+  public int getEncodedSize() {
+    return MessageSizes.collection(this.featherMods, FeatherMod.SIZER);
+  }
+
   @Override
   public void handle(ServerMessageHandler handler) {}
 
@@ -1,10 +1,12 @@
 package net.digitalingot.feather.serverapi.messaging.messages.server;
 
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageId;
 import net.digitalingot.feather.serverapi.messaging.MessageReader;
 import net.digitalingot.feather.serverapi.messaging.MessageWriter;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 
+@MessageId(6)
 public class C2SRequestServerBackground implements Message<ServerMessageHandler> {
 
   public C2SRequestServerBackground() {}
@@ -14,6 +16,11 @@ public class C2SRequestServerBackground implements Message<ServerMessageHandler>
   @Override
   public void write(MessageWriter writer) {}
 
+  @Override
+  public int getEncodedSize() {
+    return 0;
+  }
+
   @Override
   public void handle(ServerMessageHandler handler) {
     handler.handle(this);
@@ -6,6 +6,8 @@ include(
     "api",
     "common",
     "messaging",
+    "messaging-benchmarks",
+    "messaging-processor",
     "bukkit",
     //"bungee",
     "velocity",
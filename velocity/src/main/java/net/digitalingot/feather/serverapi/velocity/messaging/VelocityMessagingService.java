@@ -8,19 +8,33 @@ import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
 import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
+import com.velocitypowered.api.proxy.messages.PluginMessageEncoder;
+import java.nio.ByteBuffer;
 import java.util.Collection;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import net.digitalingot.feather.serverapi.api.model.FeatherMod;
 import net.digitalingot.feather.serverapi.api.model.Platform;
 import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
+import net.digitalingot.feather.serverapi.messaging.FramedMessage;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageBatcher;
+import net.digitalingot.feather.serverapi.messaging.MessageCapabilities;
+import net.digitalingot.feather.serverapi.messaging.MessageCompressor;
 import net.digitalingot.feather.serverapi.messaging.MessageConstants;
 import net.digitalingot.feather.serverapi.messaging.MessageDecoder;
 import net.digitalingot.feather.serverapi.messaging.MessageEncoder;
+import net.digitalingot.feather.serverapi.messaging.MessageFragmentationConstants;
 import net.digitalingot.feather.serverapi.messaging.MessageFragmenter;
+import net.digitalingot.feather.serverapi.messaging.MessageLanes;
+import net.digitalingot.feather.serverapi.messaging.MessagePriority;
+import net.digitalingot.feather.serverapi.messaging.MessageReassembler;
+import net.digitalingot.feather.serverapi.messaging.Messages;
+import net.digitalingot.feather.serverapi.messaging.MessagingOptions;
+import net.digitalingot.feather.serverapi.messaging.PreparedMessage;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CHandshake;
 import net.digitalingot.feather.serverapi.messaging.messages.server.C2SClientHello;
@@ -39,6 +53,11 @@ public class VelocityMessagingService {
       "feather:client");
   static final ChannelIdentifier CHANNEL_FRAGMENTED = MinecraftChannelIdentifier.from(
       "feather:client/frag");
+  static final int LEGACY_FRAME_SIZE = 32767;
+  // The largest client-bound custom payload the vanilla client accepts.
+  static final int MAX_FRAME_SIZE = 1024 * 1024;
+  static final long SWEEP_PERIOD_SECONDS = 5;
+  static final long FLUSH_PERIOD_MILLIS = 10;
 
   @NotNull
   final FeatherVelocityPlugin plugin;
@@ -50,6 +69,15 @@ public class VelocityMessagingService {
   final RpcService rpcService;
   @NotNull
   final Handshaking handshaking;
+  @NotNull
+  final MessageReassembler<UUID> reassembler = new MessageReassembler<>();
+  @NotNull
+  final MessageLanes<Player> lanes =
+      new MessageLanes<>(MessageLanes.getBytesPerFlush(FLUSH_PERIOD_MILLIS));
+  @NotNull
+  final MessageBatcher<Player> batcher =
+      new MessageBatcher<>(LEGACY_FRAME_SIZE, MessageCompressor.SHARED, this.lanes,
+          this::onEncodingFailure);
 
   public VelocityMessagingService(
       @NotNull FeatherVelocityPlugin plugin,
@@ -65,6 +93,18 @@ public class VelocityMessagingService {
     server.getEventManager().register(plugin, this.handshaking);
     server.getChannelRegistrar().register(CHANNEL, CHANNEL_FRAGMENTED);
     server.getEventManager().register(plugin, this);
+    server.getScheduler()
+        .buildTask(plugin, this.reassembler::expire)
+        .repeat(SWEEP_PERIOD_SECONDS, TimeUnit.SECONDS)
+        .schedule();
+    server.getScheduler()
+        .buildTask(plugin, this.handshaking::expire)
+        .repeat(SWEEP_PERIOD_SECONDS, TimeUnit.SECONDS)
+        .schedule();
+    server.getScheduler()
+        .buildTask(plugin, this::flush)
+        .repeat(FLUSH_PERIOD_MILLIS, TimeUnit.MILLISECONDS)
+        .schedule();
   }
 
   @Subscribe
@@ -75,6 +115,11 @@ public class VelocityMessagingService {
       return;
     }
 
+    if (event.getIdentifier().equals(CHANNEL_FRAGMENTED)) {
+      onFragmentedPluginMessage(player, event.getData());
+      return;
+    }
+
     if (!event.getIdentifier().equals(CHANNEL)) {
       return;
     }
@@ -82,12 +127,17 @@ public class VelocityMessagingService {
     VelocityFeatherPlayer featherPlayer = this.playerService.getPlayer(player.getUniqueId());
 
     if (featherPlayer != null) {
+      if (!featherPlayer.tryReceiveMessage()) {
+        featherPlayer.recordThrottledMessage();
+        return;
+      }
+
       Message<ServerMessageHandler> decodedMessage;
 
       try {
-        decodedMessage = MessageDecoder.SERVER_BOUND.decode(event.getData());
+        decodedMessage = featherPlayer.getDecoder().decode(event.getData());
       } catch (Exception exception) {
-        exception.printStackTrace();
+        rejectMessage(featherPlayer, exception);
         return;
       }
 
@@ -101,12 +151,54 @@ public class VelocityMessagingService {
     }
   }
 
+  private void onFragmentedPluginMessage(Player player, byte[] data) {
+    VelocityFeatherPlayer featherPlayer = this.playerService.getPlayer(player.getUniqueId());
+
+    if (featherPlayer == null) {
+      return;
+    }
+
+    // Dropping a fragment fails its whole message, which only a flooding client gets to see.
+    if (!featherPlayer.tryReceiveMessage()) {
+      featherPlayer.recordThrottledMessage();
+      return;
+    }
+
+    Message<ServerMessageHandler> decodedMessage;
+
+    try {
+      decodedMessage =
+          this.reassembler.accept(player.getUniqueId(), data, featherPlayer.getDecoder());
+    } catch (Exception exception) {
+      rejectMessage(featherPlayer, exception);
+      return;
+    }
+
+    if (decodedMessage != null) {
+      handleMessage(featherPlayer, decodedMessage);
+    }
+  }
+
+  @Subscribe
+  public void onDisconnect(DisconnectEvent event) {
+    this.reassembler.remove(event.getPlayer().getUniqueId());
+    this.batcher.remove(event.getPlayer());
+    this.lanes.remove(event.getPlayer());
+  }
+
   public void fireEvent(Object event) {
     this.server.getEventManager().fireAndForget(event);
   }
 
   private void handleHello(Player player, C2SClientHello hello) {
-    VelocityFeatherPlayer featherPlayer = new VelocityFeatherPlayer(player, this, this.rpcService);
+    Handshaking.Connection connection = this.handshaking.take(player);
+    VelocityFeatherPlayer featherPlayer =
+        new VelocityFeatherPlayer(
+            player,
+            this,
+            this.rpcService,
+            connection.capabilities,
+            connection.frameSize);
     this.playerService.register(featherPlayer);
 
     Platform platform = switch (hello.getPlatform()) {
@@ -125,12 +217,54 @@ public class VelocityMessagingService {
     this.fireEvent(helloEvent);
   }
 
+  private void rejectMessage(VelocityFeatherPlayer player, Exception exception) {
+    // Malformed input is expected from misbehaving clients; log it once per player.
+    if (player.recordRejectedMessage() == 1) {
+      this.plugin
+          .getLogger()
+          .warn(
+              "Rejected a message from {}, further rejections are only counted",
+              player.getName(),
+              exception);
+    }
+  }
+
+  private void onEncodingFailure(Player player, Message<?> message, RuntimeException exception) {
+    this.plugin
+        .getLogger()
+        .warn(
+            "Failed to encode {} for {}",
+            message.getClass().getSimpleName(),
+            player.getUsername(),
+            exception);
+  }
+
   private void handleMessage(VelocityFeatherPlayer player, Message<ServerMessageHandler> message) {
     player.handleMessage(message);
   }
 
   public void sendMessage(VelocityFeatherPlayer player, Message<?> message) {
-    sendMessage(player.getPlayer(), message);
+    // Only the scheduled flush drains the lanes, so any thread sending may wait for it.
+    this.lanes.awaitCapacity(player.getPlayer());
+    if (batches(player, message)) {
+      enqueue(player, message);
+      return;
+    }
+
+    int encodedSize = MessageEncoder.CLIENT_BOUND.getEncodedSize(message);
+    boolean compress = supports(player, MessageCapabilities.COMPRESSION)
+        && MessageCompressor.SHARED.shouldCompress(encodedSize);
+    int frameSize = getFrameSize(player);
+    if (!compress && encodedSize <= frameSize
+        && (message.getPriority() == MessagePriority.URGENT
+            || this.lanes.isIdle(player.getPlayer()))) {
+      // Nothing to wait for: serialize straight into the proxy's outbound buffer.
+      sendPluginMessage(player.getPlayer(), CHANNEL,
+          output -> MessageEncoder.CLIENT_BOUND.encode(message, output));
+      return;
+    }
+
+    send(player, frame(message, compress, frameSize), message.getPriority());
   }
 
   public void sendMessage(Collection<FeatherPlayer> recipients, Message<?> message) {
@@ -138,43 +272,164 @@ public class VelocityMessagingService {
       return;
     }
 
-    byte[] encoded = MessageEncoder.CLIENT_BOUND.encode(message);
-    if (encoded.length > 32767) {
-      List<byte[]> fragments = MessageFragmenter.CLIENT_BOUND.fragment(message);
-      for (FeatherPlayer recipient : recipients) {
-        for (byte[] data : fragments) {
-          sendPluginMessage(
-              ((VelocityFeatherPlayer) recipient).getPlayer(), CHANNEL_FRAGMENTED, data);
-        }
+    // Frame at most once per variant, only for the variants some recipient actually needs.
+    Map<Integer, FramedMessage> variants = new HashMap<>();
+
+    for (FeatherPlayer recipient : recipients) {
+      VelocityFeatherPlayer player = (VelocityFeatherPlayer) recipient;
+      this.lanes.awaitCapacity(player.getPlayer());
+      if (batches(player, message)) {
+        enqueue(player, message);
+        continue;
       }
+
+      boolean compress = supports(player, MessageCapabilities.COMPRESSION);
+      int frameSize = getFrameSize(player);
+      FramedMessage framed =
+          variants.computeIfAbsent(
+              frameSize << 1 | (compress ? 1 : 0), ignored -> frame(message, compress, frameSize));
+      send(player, framed, message.getPriority());
+    }
+  }
+
+  public void sendMessage(VelocityFeatherPlayer player, PreparedMessage message) {
+    this.lanes.awaitCapacity(player.getPlayer());
+    boolean compress = supports(player, MessageCapabilities.COMPRESSION);
+    if (batches(player, message.getMessage())) {
+      recordDropped(player,
+          this.batcher.enqueue(player.getPlayer(), message, compress, getFrameSize(player)));
     } else {
-      for (FeatherPlayer recipient : recipients) {
-        sendPluginMessage(((VelocityFeatherPlayer) recipient).getPlayer(), CHANNEL, encoded);
-      }
+      send(player, message.getFrames(compress, getFrameSize(player)),
+          message.getMessage().getPriority());
     }
   }
 
+  public int getQueuedMessages(VelocityFeatherPlayer player) {
+    return this.lanes.getQueuedMessages(player.getPlayer());
+  }
+
+  public long getQueuedBytes(VelocityFeatherPlayer player) {
+    return this.lanes.getQueuedBytes(player.getPlayer());
+  }
+
+  public boolean isCongested(VelocityFeatherPlayer player) {
+    return this.lanes.isCongested(player.getPlayer());
+  }
+
   public void sendMessage(Player player, Message<?> message) {
-    byte[] encoded = MessageEncoder.CLIENT_BOUND.encode(message);
+    sendMessage(
+        player, message, MessageEncoder.CLIENT_BOUND.getEncodedSize(message), LEGACY_FRAME_SIZE);
+  }
 
-    if (encoded.length > 32767) {
-      for (byte[] data : MessageFragmenter.CLIENT_BOUND.fragment(message)) {
-        sendPluginMessage(player, CHANNEL_FRAGMENTED, data);
-      }
+  /**
+   * Frames {@code message} once for this transport so it can be sent to any number of players
+   * without being encoded again.
+   *
+   * @param message the client-bound message
+   * @return the prepared message
+   */
+  @NotNull
+  public static PreparedMessage prepare(@NotNull Message<?> message) {
+    return PreparedMessage.prepare(message, LEGACY_FRAME_SIZE, MessageCompressor.SHARED);
+  }
+
+  private void sendMessage(Player player, Message<?> message, int encodedSize, int frameSize) {
+    if (encodedSize > frameSize) {
+      MessageFragmenter.CLIENT_BOUND.stream(
+          message, frameSize, data -> sendPluginMessage(player, CHANNEL_FRAGMENTED, data));
     } else {
-      sendPluginMessage(player, CHANNEL, encoded);
+      // Serialized straight into the proxy's outbound buffer instead of an intermediate array.
+      sendPluginMessage(
+          player, CHANNEL, output -> MessageEncoder.CLIENT_BOUND.encode(message, output));
+    }
+  }
+
+  private static FramedMessage frame(Message<?> message, boolean compress, int frameSize) {
+    return MessageFragmenter.CLIENT_BOUND.frame(
+        message, frameSize, compress ? MessageCompressor.SHARED : null);
+  }
+
+  private static boolean supports(VelocityFeatherPlayer player, int capability) {
+    return MessageCapabilities.has(player.getCapabilities(), capability);
+  }
+
+  // Urgent messages skip the batch instead of waiting for the next flush.
+  private static boolean batches(VelocityFeatherPlayer player, Message<?> message) {
+    return supports(player, MessageCapabilities.BATCHING)
+        && message.getPriority() != MessagePriority.URGENT;
+  }
+
+  private static int getFrameSize(VelocityFeatherPlayer player) {
+    // Leave room for the transfer id prefixing fragmented frames.
+    return supports(player, MessageCapabilities.TRANSFER_IDS)
+        ? player.getMaxFrameSize() - MessageFragmentationConstants.TRANSFER_ID_SIZE
+        : player.getMaxFrameSize();
+  }
+
+  private void enqueue(VelocityFeatherPlayer player, Message<?> message) {
+    recordDropped(player, this.batcher.enqueue(
+        player.getPlayer(),
+        message,
+        supports(player, MessageCapabilities.COMPRESSION),
+        getFrameSize(player)));
+  }
+
+  private void send(VelocityFeatherPlayer player, FramedMessage message,
+      MessagePriority priority) {
+    recordDropped(player, this.lanes.send(player.getPlayer(), message, priority,
+        supports(player, MessageCapabilities.TRANSFER_IDS), this::sendFrame));
+  }
+
+  private static void recordDropped(VelocityFeatherPlayer player, int dropped) {
+    if (dropped > 0) {
+      player.recordDroppedMessages(dropped);
     }
   }
 
+  private void flush() {
+    this.batcher.flush((player, message, priority) -> {
+      VelocityFeatherPlayer featherPlayer = this.playerService.getPlayer(player.getUniqueId());
+      if (featherPlayer != null) {
+        send(featherPlayer, message, priority);
+      }
+    });
+    this.lanes.flush(this::sendFrame);
+  }
+
+  private void sendFrame(Player player, boolean fragmented, int transfer, ByteBuffer frame) {
+    ChannelIdentifier channel = fragmented ? CHANNEL_FRAGMENTED : CHANNEL;
+    byte[] array = frame.array();
+    int offset = frame.arrayOffset() + frame.position();
+    int length = frame.remaining();
+    if (transfer == MessageLanes.NO_TRANSFER && offset == 0 && length == array.length) {
+      sendPluginMessage(player, channel, array);
+      return;
+    }
+    sendPluginMessage(player, channel, output -> {
+      if (transfer != MessageLanes.NO_TRANSFER) {
+        output.writeByte(transfer);
+      }
+      output.write(array, offset, length);
+    });
+  }
+
   private void sendPluginMessage(@NotNull Player player, @NotNull ChannelIdentifier channel,
       byte[] data) {
     player.sendPluginMessage(channel, data);
   }
 
+  private void sendPluginMessage(@NotNull Player player, @NotNull ChannelIdentifier channel,
+      @NotNull PluginMessageEncoder encoder) {
+    player.sendPluginMessage(channel, encoder);
+  }
+
   private static class Handshaking {
+    // How long a connection may take from its first message to the hello, in milliseconds.
+    private static final long TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(
+        MessagingOptions.getLong("handshake.timeout", TimeUnit.SECONDS.toMillis(30)));
 
     private final VelocityMessagingService messagingService;
-    private final Map<UUID, HandshakeState> handshakes = Maps.newHashMap();
+    private final Map<UUID, Connection> connections = Maps.newConcurrentMap();
     private final UpdateNotifier updateNotifier;
 
     public Handshaking(VelocityMessagingService messagingService, UpdateNotifier updateNotifier) {
@@ -182,60 +437,90 @@ public class VelocityMessagingService {
       this.updateNotifier = updateNotifier;
     }
 
-    private HandshakeState getState(Player player) {
-      return this.handshakes.getOrDefault(player.getUniqueId(), HandshakeState.EXPECTING_HANDSHAKE);
-    }
-
-    private void setState(UUID playerId, HandshakeState state) {
-      this.handshakes.put(playerId, state);
+    private void accept(Player player, Connection connection) {
+      connection.state = HandshakeState.EXPECTING_HELLO;
+      // Clients assume the legacy frame size unless told otherwise.
+      this.messagingService.sendMessage(
+          player,
+          new S2CHandshake(
+              connection.capabilities,
+              connection.frameSize != LEGACY_FRAME_SIZE ? connection.frameSize : 0));
     }
 
-    private void accept(Player player) {
-      setState(player.getUniqueId(), HandshakeState.EXPECTING_HELLO);
-      this.messagingService.sendMessage(player, new S2CHandshake());
+    /** Removes the finished handshake of {@code player}, returning what was negotiated. */
+    @NotNull
+    private Connection take(Player player) {
+      Connection connection = this.connections.remove(player.getUniqueId());
+      return connection != null ? connection : new Connection(System.nanoTime());
     }
 
-    private void reject(Player player) {
-      setState(player.getUniqueId(), HandshakeState.REJECTED);
+    /**
+     * Forgets every connection whose deadline passed, whether it is still handshaking or was
+     * rejected, so that silent connections do not linger until they quit. A connection that sends
+     * anything afterwards starts over.
+     */
+    private void expire() {
+      long now = System.nanoTime();
+      this.connections.values().removeIf(connection -> now - connection.deadline > 0);
     }
 
-    private void finish(Player player) {
-      this.handshakes.remove(player.getUniqueId());
+    private C2SClientHello handle(Player player, byte[] data) {
+      Connection connection = this.connections.computeIfAbsent(
+          player.getUniqueId(), ignored -> new Connection(System.nanoTime() + TIMEOUT_NANOS));
+      synchronized (connection) {
+        return handle(player, connection, data);
+      }
     }
 
-    private C2SClientHello handle(Player player, byte[] data) {
-      HandshakeState state = getState(player);
+    private C2SClientHello handle(Player player, Connection connection, byte[] data) {
+      HandshakeState state = connection.state;
 
-      if (state == HandshakeState.REJECTED) {
+      // Rejected and finished connections are dropped without looking at the message.
+      if (state == HandshakeState.REJECTED || state == HandshakeState.FINISHED) {
+        return null;
+      }
+      if (System.nanoTime() - connection.deadline > 0) {
+        connection.state = HandshakeState.REJECTED;
         return null;
       }
 
       Message<ServerMessageHandler> message;
       try {
+        // Only the id is needed to reject anything but the expected message.
+        if (MessageDecoder.SERVER_BOUND.peekId(data) != getExpectedMessageId(state)) {
+          connection.state = HandshakeState.REJECTED;
+          return null;
+        }
         message = MessageDecoder.SERVER_BOUND.decode(data);
       } catch (Exception exception) {
-        reject(player);
+        connection.state = HandshakeState.REJECTED;
         return null;
       }
 
       if (state == HandshakeState.EXPECTING_HANDSHAKE) {
-        if (handleExpectingHandshake(message)) {
-          accept(player);
+        if (handleExpectingHandshake(connection, message)) {
+          accept(player, connection);
         } else {
-          reject(player);
+          connection.state = HandshakeState.REJECTED;
         }
       } else if (state == HandshakeState.EXPECTING_HELLO) {
-        if ((message instanceof C2SClientHello)) {
-          finish(player);
-          return (C2SClientHello) message;
+        if (message instanceof C2SClientHello hello) {
+          connection.state = HandshakeState.FINISHED;
+          return hello;
         }
-        reject(player);
+        connection.state = HandshakeState.REJECTED;
       }
 
       return null;
     }
 
-    private boolean handleExpectingHandshake(Message<ServerMessageHandler> message) {
+    private static int getExpectedMessageId(HandshakeState state) {
+      return Messages.SERVER_BOUND.getId(
+          state == HandshakeState.EXPECTING_HANDSHAKE ? C2SHandshake.class : C2SClientHello.class);
+    }
+
+    private boolean handleExpectingHandshake(
+        Connection connection, Message<ServerMessageHandler> message) {
       if (!(message instanceof C2SHandshake handshake)) {
         return false;
       }
@@ -243,18 +528,37 @@ public class VelocityMessagingService {
       if (protocolVersion > MessageConstants.VERSION) {
         this.updateNotifier.setPotentiallyOutOfDate(protocolVersion);
       }
+      connection.capabilities = MessageCapabilities.negotiate(handshake.getCapabilities());
+      connection.frameSize = MessageCapabilities.negotiateFrameSize(
+          handshake.getMaxFrameSize(), LEGACY_FRAME_SIZE, MAX_FRAME_SIZE);
       return true;
     }
 
     @Subscribe
     public void onPlayerQuit(DisconnectEvent event) {
-      finish(event.getPlayer());
+      this.connections.remove(event.getPlayer().getUniqueId());
     }
 
     private enum HandshakeState {
       EXPECTING_HANDSHAKE,
       EXPECTING_HELLO,
+      FINISHED,
       REJECTED
     }
+
+    /**
+     * The handshake state of one connection. Rejected connections keep theirs until it expires, so
+     * that anything else they send meanwhile is dropped right away.
+     */
+    private static final class Connection {
+      final long deadline;
+      HandshakeState state = HandshakeState.EXPECTING_HANDSHAKE;
+      int capabilities = MessageCapabilities.NONE;
+      int frameSize = LEGACY_FRAME_SIZE;
+
+      Connection(long deadline) {
+        this.deadline = deadline;
+      }
+    }
   }
 }
@@ -7,10 +7,17 @@ import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import net.digitalingot.feather.serverapi.api.model.FeatherMod;
 import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
+import net.digitalingot.feather.serverapi.common.ratelimit.TokenBucket;
 import net.digitalingot.feather.serverapi.messaging.Message;
+import net.digitalingot.feather.serverapi.messaging.MessageCapabilities;
+import net.digitalingot.feather.serverapi.messaging.MessageDecoder;
+import net.digitalingot.feather.serverapi.messaging.MessageStringTable;
+import net.digitalingot.feather.serverapi.messaging.MessagingOptions;
+import net.digitalingot.feather.serverapi.messaging.PreparedMessage;
 import net.digitalingot.feather.serverapi.messaging.ServerMessageHandler;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CMissPenaltyState;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CModsAction;
@@ -19,6 +26,8 @@ import net.digitalingot.feather.serverapi.velocity.ui.rpc.RpcService;
 import org.jetbrains.annotations.NotNull;
 
 public class VelocityFeatherPlayer implements FeatherPlayer {
+  private static final int INBOUND_RATE = MessagingOptions.getInt("inbound.rate", 200);
+  private static final int INBOUND_BURST = MessagingOptions.getInt("inbound.burst", 400);
 
   @NotNull
   private final Player player;
@@ -27,13 +36,28 @@ public class VelocityFeatherPlayer implements FeatherPlayer {
   @NotNull
   private final PlayerMessageHandler messageHandler;
   private final Set<FeatherMod> blockedMods = Sets.newHashSet();
+  private final int capabilities;
+  private final int maxFrameSize;
+  @NotNull private final MessageDecoder<ServerMessageHandler> decoder;
+  private final AtomicLong rejectedMessages = new AtomicLong();
+  private final AtomicLong throttledMessages = new AtomicLong();
+  private final AtomicLong droppedMessages = new AtomicLong();
+  private final TokenBucket inboundLimit = new TokenBucket(INBOUND_RATE, INBOUND_BURST);
 
   public VelocityFeatherPlayer(
       @NotNull Player player,
       @NotNull VelocityMessagingService messagingService,
-      @NotNull RpcService rpcService) {
+      @NotNull RpcService rpcService,
+      int capabilities,
+      int maxFrameSize) {
     this.player = player;
     this.messagingService = messagingService;
+    this.capabilities = capabilities;
+    this.maxFrameSize = maxFrameSize;
+    this.decoder =
+        MessageCapabilities.has(capabilities, MessageCapabilities.STRING_TABLE)
+            ? MessageDecoder.SERVER_BOUND.withStringTable(new MessageStringTable())
+            : MessageDecoder.SERVER_BOUND;
     this.messageHandler = new PlayerMessageHandler(this, rpcService);
   }
 
@@ -41,6 +65,85 @@ public class VelocityFeatherPlayer implements FeatherPlayer {
     return this.player;
   }
 
+  /**
+   * Returns the {@link MessageCapabilities} negotiated with this player's client.
+   *
+   * @return the negotiated capability bits
+   */
+  public int getCapabilities() {
+    return this.capabilities;
+  }
+
+  /**
+   * Returns the largest client-bound frame negotiated with this player's client.
+   *
+   * @return the frame size in bytes
+   */
+  public int getMaxFrameSize() {
+    return this.maxFrameSize;
+  }
+
+  /**
+   * Returns the decoder for messages from this player, bound to its string table if negotiated.
+   *
+   * @return the decoder of this player's connection
+   */
+  @NotNull
+  public MessageDecoder<ServerMessageHandler> getDecoder() {
+    return this.decoder;
+  }
+
+  /**
+   * Returns how many messages from this player were rejected as malformed or oversized.
+   *
+   * @return the rejected message count
+   */
+  public long getRejectedMessages() {
+    return this.rejectedMessages.get();
+  }
+
+  /**
+   * Counts a message from this player that was rejected.
+   *
+   * @return the rejected message count, including this message
+   */
+  public long recordRejectedMessage() {
+    return this.rejectedMessages.incrementAndGet();
+  }
+
+  /**
+   * Returns how many messages from this player were dropped for exceeding its inbound rate limit.
+   *
+   * @return the throttled message count
+   */
+  public long getThrottledMessages() {
+    return this.throttledMessages.get();
+  }
+
+  /** Counts a message from this player that was dropped for exceeding its inbound rate limit. */
+  public void recordThrottledMessage() {
+    this.throttledMessages.incrementAndGet();
+  }
+
+  /**
+   * Takes a message from this player against its inbound rate limit, the {@code inbound.rate}
+   * {@link MessagingOptions} per second.
+   *
+   * @return {@code true} if the message may be handled, {@code false} if it must be dropped
+   */
+  public boolean tryReceiveMessage() {
+    return this.inboundLimit.tryAcquire();
+  }
+
+  /**
+   * Counts messages to this player that were dropped because its outbound queue was full.
+   *
+   * @param messages the number of dropped messages
+   */
+  public void recordDroppedMessages(int messages) {
+    this.droppedMessages.addAndGet(messages);
+  }
+
   @Override
   public @NotNull UUID getUniqueId() {
     return this.player.getUniqueId();
@@ -88,6 +191,26 @@ public class VelocityFeatherPlayer implements FeatherPlayer {
     sendMessage(new S2CMissPenaltyState(!enabled));
   }
 
+  @Override
+  public int getQueuedMessages() {
+    return this.messagingService.getQueuedMessages(this);
+  }
+
+  @Override
+  public long getQueuedBytes() {
+    return this.messagingService.getQueuedBytes(this);
+  }
+
+  @Override
+  public long getDroppedMessages() {
+    return this.droppedMessages.get();
+  }
+
+  @Override
+  public boolean isCongested() {
+    return this.messagingService.isCongested(this);
+  }
+
   private void sendModsAction(
       S2CModsAction.Action action, @NotNull Collection<@NotNull FeatherMod> mods) {
     if (!mods.isEmpty()) {
@@ -105,7 +228,11 @@ public class VelocityFeatherPlayer implements FeatherPlayer {
   }
 
   public void sendMessage(@NotNull Message<?> message) {
-    this.messagingService.sendMessage(this.player, message);
+    this.messagingService.sendMessage(this, message);
+  }
+
+  public void sendMessage(@NotNull PreparedMessage message) {
+    this.messagingService.sendMessage(this, message);
   }
 
   public void handleMessage(@NotNull Message<ServerMessageHandler> message) {
@@ -5,12 +5,10 @@ import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.proxy.ProxyServer;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
 import net.digitalingot.feather.serverapi.api.player.PlayerService;
+import net.digitalingot.feather.serverapi.common.player.PlayerRegistry;
 import net.digitalingot.feather.serverapi.velocity.FeatherVelocityPlugin;
 import net.digitalingot.feather.serverapi.velocity.event.player.FeatherPlayerQuitEvent;
 import org.jetbrains.annotations.NotNull;
@@ -20,7 +18,7 @@ public class VelocityPlayerService implements PlayerService {
 
   private final ProxyServer server;
   private final FeatherVelocityPlugin plugin;
-  private final Map<UUID, VelocityFeatherPlayer> players = new HashMap<>();
+  private final PlayerRegistry<VelocityFeatherPlayer> players = new PlayerRegistry<>();
 
   public VelocityPlayerService(FeatherVelocityPlugin plugin, ProxyServer server) {
     this.plugin = plugin;
@@ -29,7 +27,7 @@ public class VelocityPlayerService implements PlayerService {
   }
 
   public void register(VelocityFeatherPlayer player) {
-    this.players.put(player.getUniqueId(), player);
+    this.players.register(player);
   }
 
   @Override
@@ -39,7 +37,7 @@ public class VelocityPlayerService implements PlayerService {
 
   @Override
   public @NotNull Collection<FeatherPlayer> getPlayers() {
-    return Collections.unmodifiableCollection(this.players.values());
+    return this.players.getPlayers();
   }
 
   @Subscribe(order = PostOrder.LAST)
@@ -15,6 +15,7 @@ import net.digitalingot.feather.serverapi.api.ui.rpc.RpcController;
 import net.digitalingot.feather.serverapi.api.ui.rpc.RpcHandler;
 import net.digitalingot.feather.serverapi.api.ui.rpc.RpcRequest;
 import net.digitalingot.feather.serverapi.api.ui.rpc.RpcResponse;
+import net.digitalingot.feather.serverapi.messaging.LazyUtf;
 import net.digitalingot.feather.serverapi.messaging.messages.client.S2CFUIResponse;
 import net.digitalingot.feather.serverapi.velocity.FeatherVelocityPlugin;
 import net.digitalingot.feather.serverapi.velocity.player.VelocityFeatherPlayer;
@@ -142,19 +143,21 @@ public class RpcService {
 
   public void handle(
       VelocityFeatherPlayer player, String rpcHostName, String rpcName, int requestId,
-      String body) {
+      LazyUtf body) {
     RegisteredRpcHandler handler = getRpcHandler(rpcHostName, rpcName);
 
-    if (handler != null) {
-      try {
-        handler.invoke(
-            new VelocityRpcRequest(player, body),
-            new VelocityRpcResponse(requestId, player, this.plugin));
-      } catch (Throwable throwable) {
-        this.logger.warn("Error occurred handling RPC request", throwable);
-      }
-    } else {
+    // Rejected before the body is decoded or any handler sees the request.
+    if (handler == null || !handler.tryAcquire(player.getUniqueId())) {
       player.sendMessage(new S2CFUIResponse(requestId, false, ""));
+      return;
+    }
+
+    try {
+      handler.invoke(
+          new VelocityRpcRequest(player, body),
+          new VelocityRpcResponse(requestId, player, this.plugin));
+    } catch (Throwable throwable) {
+      this.logger.warn("Error occurred handling RPC request", throwable);
     }
   }
 
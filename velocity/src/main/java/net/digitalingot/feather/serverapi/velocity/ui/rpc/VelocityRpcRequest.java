@@ -2,6 +2,7 @@ package net.digitalingot.feather.serverapi.velocity.ui.rpc;
 
 import net.digitalingot.feather.serverapi.api.player.FeatherPlayer;
 import net.digitalingot.feather.serverapi.api.ui.rpc.RpcRequest;
+import net.digitalingot.feather.serverapi.messaging.LazyUtf;
 import net.digitalingot.feather.serverapi.velocity.player.VelocityFeatherPlayer;
 import org.jetbrains.annotations.NotNull;
 
@@ -10,9 +11,9 @@ public class VelocityRpcRequest implements RpcRequest {
   @NotNull
   private final VelocityFeatherPlayer player;
   @NotNull
-  private final String body;
+  private final LazyUtf body;
 
-  public VelocityRpcRequest(@NotNull VelocityFeatherPlayer player, @NotNull String body) {
+  public VelocityRpcRequest(@NotNull VelocityFeatherPlayer player, @NotNull LazyUtf body) {
     this.player = player;
     this.body = body;
   }
@@ -24,6 +25,6 @@ public class VelocityRpcRequest implements RpcRequest {
 
   @Override
   public @NotNull String getBody() {
-    return this.body;
+    return this.body.toString();
   }
 }